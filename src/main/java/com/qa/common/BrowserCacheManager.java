@@ -0,0 +1,198 @@
+package com.qa.common;
+
+import com.qa.utils.ConfigManager;
+import com.qa.utils.TestUtils;
+import org.openqa.selenium.WebDriver;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Opt-in persistent HTTP asset cache for Chrome (httpCache.enabled=true).
+ * Without it every browser starts in --incognito and downloads all JS/CSS/fonts again.
+ * With it:
+ * - the Chromium disk cache lives in a shared directory (httpCache.dir) that survives browsers and runs;
+ *   Chromium itself honours Cache-Control/ETag and evicts LRU within its slot's share of the budget.
+ * - cookies, localStorage and sessionStorage stay isolated: every browser gets a fresh throwaway
+ *   profile (--user-data-dir) that is deleted when the driver quits.
+ * Concurrent browsers never share a cache directory: each one claims one of httpCache.slots numbered slots
+ * under httpCache.dir guarded by a file lock, so parallel workers reuse warm slots without corrupting them.
+ * httpCache.maxSizeMb is the budget for all slots together: each slot gets an equal share, and slot
+ * directories beyond httpCache.slots (left by an earlier setting) are deleted once no browser holds them.
+ */
+public final class BrowserCacheManager {
+
+    private static final ConfigManager CONFIG = new ConfigManager();
+    private static final String LOCK_FILE = ".slot.lock";
+    private static final int MAX_SLOTS = 32;
+    private static final String SLOT_PREFIX = "slot-";
+
+    // driver -> cache slot + throwaway profile it was started with
+    private static final Map<WebDriver, CacheLease> LEASES = new ConcurrentHashMap<>();
+    // Slots held by this JVM: never opened again while held, since closing any channel on a locked file
+    // may drop the process's lock on it
+    private static final Set<Path> HELD = ConcurrentHashMap.newKeySet();
+
+    // Prevent instantiation
+    private BrowserCacheManager() {
+        throw new UnsupportedOperationException("Common class");
+    }
+
+    /** Cache slot and isolated profile handed to one browser instance. */
+    public static final class CacheLease {
+        private final Path cacheDir;
+        private final Path profileDir;
+        private final FileChannel lockChannel;
+        private final FileLock lock;
+
+        private CacheLease(Path cacheDir, Path profileDir, FileChannel lockChannel, FileLock lock) {
+            this.cacheDir = cacheDir;
+            this.profileDir = profileDir;
+            this.lockChannel = lockChannel;
+            this.lock = lock;
+        }
+
+        public Path cacheDir() { return cacheDir; }
+
+        public Path profileDir() { return profileDir; }
+    }
+
+    public static boolean isEnabled() {
+        return "true".equalsIgnoreCase(CONFIG.getConfigProps().getProperty("httpCache.enabled", "false"));
+    }
+
+    /**
+     * Claims a free cache slot and creates a fresh profile directory.
+     * Returns null when the cache is disabled or no slot could be prepared (caller falls back to incognito).
+     */
+    public static CacheLease acquire() {
+        if (!isEnabled()) return null;
+
+        Path root = Paths.get(CONFIG.getConfigProps().getProperty("httpCache.dir", ".cache/chrome-http")).toAbsolutePath();
+        try {
+            Files.createDirectories(root);
+            int slots = slots();
+            evictSlotsFrom(root, slots);
+            for (int slot = 0; slot < slots; slot++) {
+                Path slotDir = Files.createDirectories(root.resolve(SLOT_PREFIX + slot));
+                if (!HELD.add(slotDir)) continue;
+                FileChannel channel = null;
+                try {
+                    channel = FileChannel.open(slotDir.resolve(LOCK_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                    FileLock lock = tryLock(channel);
+                    if (lock != null) {
+                        Path profile = Files.createTempDirectory("chrome-profile-");
+                        TestUtils.log().info("HTTP cache slot {} claimed (cache={}, profile={})", slot, slotDir, profile);
+                        return new CacheLease(slotDir, profile, channel, lock);
+                    }
+                } catch (IOException e) {
+                    TestUtils.log().warn("HTTP cache slot {} unusable: {}", slot, e.getMessage());
+                }
+                if (channel != null) channel.close(); // also drops a lock taken before a failure
+                HELD.remove(slotDir);
+            }
+            TestUtils.log().warn("All {} HTTP cache slots are busy. Falling back to incognito.", slots);
+        } catch (IOException e) {
+            TestUtils.log().warn("HTTP cache could not be prepared. Falling back to incognito: {}", e.getMessage());
+        }
+        return null;
+    }
+
+    /** Disk cache size in bytes passed to --disk-cache-size: the slot's share of httpCache.maxSizeMb. */
+    public static long maxSizeBytes() {
+        long mb = intProp("httpCache.maxSizeMb", 500);
+        return Math.max(1, mb) * 1024L * 1024L / slots();
+    }
+
+    private static int slots() {
+        return Math.max(1, Math.min(MAX_SLOTS, intProp("httpCache.slots", 4)));
+    }
+
+    private static int intProp(String key, int def) {
+        try {
+            return Integer.parseInt(CONFIG.getConfigProps().getProperty(key, String.valueOf(def)).trim());
+        } catch (NumberFormatException e) {
+            return def;
+        }
+    }
+
+    /** Remember which lease a started driver uses so it can be released on quit. */
+    public static void bind(WebDriver driver, CacheLease lease) {
+        if (driver != null && lease != null) {
+            LEASES.put(driver, lease);
+        }
+    }
+
+    /**
+     * Releases the cache slot of a quit driver and deletes its throwaway profile.
+     * The shared cache directory itself is kept for the next browser/run.
+     */
+    public static void release(WebDriver driver) {
+        if (driver == null) return;
+        release(LEASES.remove(driver));
+    }
+
+    /** Releases a lease that was never bound, e.g. because the browser failed to start. */
+    public static void release(CacheLease lease) {
+        if (lease == null) return;
+        try {
+            lease.lock.release();
+            lease.lockChannel.close();
+        } catch (IOException e) {
+            TestUtils.log().warn("Failed to release HTTP cache slot {}: {}", lease.cacheDir, e.getMessage());
+        } finally {
+            HELD.remove(lease.cacheDir);
+        }
+        deleteRecursively(lease.profileDir);
+    }
+
+    /** Deletes slot directories numbered {@code slots} and above unless a browser still holds them. */
+    private static void evictSlotsFrom(Path root, int slots) throws IOException {
+        try (Stream<Path> dirs = Files.list(root)) {
+            for (Path dir : dirs.filter(Files::isDirectory).toList()) {
+                String name = dir.getFileName().toString();
+                if (!name.matches(SLOT_PREFIX + "\\d+") || Integer.parseInt(name.substring(SLOT_PREFIX.length())) < slots
+                        || HELD.contains(dir)) continue;
+                try (FileChannel channel = FileChannel.open(dir.resolve(LOCK_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                    FileLock lock = tryLock(channel);
+                    if (lock == null) continue;
+                    lock.release();
+                }
+                deleteRecursively(dir);
+                TestUtils.log().info("HTTP cache slot {} removed (httpCache.slots={})", name, slots);
+            }
+        }
+    }
+
+    private static FileLock tryLock(FileChannel channel) throws IOException {
+        try {
+            return channel.tryLock();
+        } catch (java.nio.channels.OverlappingFileLockException e) {
+            return null; // held by another browser of this JVM
+        }
+    }
+
+    private static void deleteRecursively(Path dir) {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(p -> {
+                try {
+                    Files.deleteIfExists(p);
+                } catch (IOException ignore) {
+                    // Chrome may still hold a file briefly; the temp dir is cleaned by the OS otherwise
+                }
+            });
+        } catch (IOException e) {
+            TestUtils.log().debug("Profile cleanup skipped for {}: {}", dir, e.getMessage());
+        }
+    }
+}
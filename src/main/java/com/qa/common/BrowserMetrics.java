@@ -0,0 +1,64 @@
+package com.qa.common;
+
+import com.qa.utils.TestUtils;
+import org.openqa.selenium.devtools.DevTools;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Page runtime counters read through CDP Performance.getMetrics (Chrome/Edge).
+ * A garbage collection is forced first (HeapProfiler.collectGarbage) so the heap figure
+ * reflects retained memory, not garbage that simply has not been collected yet.
+ */
+public final class BrowserMetrics {
+
+    private static final ThreadLocal<DevTools> TL_ENABLED_FOR = new ThreadLocal<>();
+
+    // Prevent instantiation
+    private BrowserMetrics() {
+        throw new UnsupportedOperationException("Common class");
+    }
+
+    public record Sample(long timestampMs, double jsHeapUsedBytes, double nodes, double listeners, double documents) {}
+
+    /** Takes a post-GC sample of the current thread's browser, or null when CDP is not available. */
+    @SuppressWarnings("unchecked")
+    public static Sample sample() {
+        DevTools devTools = DriverManager.getDevTools();
+        if (devTools == null) {
+            TestUtils.log().warn("Browser metrics unavailable: no CDP session for this browser.");
+            return null;
+        }
+        try {
+            if (TL_ENABLED_FOR.get() != devTools) {
+                CdpSupport.send(devTools, "Performance.enable", Map.of());
+                TL_ENABLED_FOR.set(devTools);
+            }
+            CdpSupport.send(devTools, "HeapProfiler.collectGarbage", Map.of());
+
+            Map<String, Double> values = new HashMap<>();
+            Object metrics = CdpSupport.send(devTools, "Performance.getMetrics", Map.of()).get("metrics");
+            if (metrics instanceof List) {
+                for (Object m : (List<Object>) metrics) {
+                    Map<String, Object> metric = (Map<String, Object>) m;
+                    values.put(CdpSupport.str(metric, "name"), CdpSupport.num(metric, "value", 0));
+                }
+            }
+            return new Sample(System.currentTimeMillis(),
+                    values.getOrDefault("JSHeapUsedSize", 0d),
+                    values.getOrDefault("Nodes", 0d),
+                    values.getOrDefault("JSEventListeners", 0d),
+                    values.getOrDefault("Documents", 0d));
+        } catch (Exception e) {
+            TestUtils.log().warn("Failed to read browser metrics: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /** Forget the per-thread Performance.enable state (browser quit). */
+    public static void clear() {
+        TL_ENABLED_FOR.remove();
+    }
+}
@@ -0,0 +1,56 @@
+package com.qa.common;
+
+import org.openqa.selenium.devtools.Command;
+import org.openqa.selenium.devtools.DevTools;
+import org.openqa.selenium.devtools.Event;
+import org.openqa.selenium.json.Json;
+import org.openqa.selenium.json.JsonInput;
+
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Untyped CDP access over an existing DevTools session.
+ * Domains such as Fetch/Performance/Emulation are driven by method name and plain maps so they
+ * keep working when the installed Chrome is newer than the generated selenium-devtools-vNNN classes.
+ */
+public final class CdpSupport {
+
+    private static final Function<JsonInput, Map<String, Object>> AS_MAP = input -> input.read(Json.MAP_TYPE);
+
+    // Prevent instantiation
+    private CdpSupport() {
+        throw new UnsupportedOperationException("Common class");
+    }
+
+    /** Sends a CDP command and returns its result object (empty map for void commands). */
+    public static Map<String, Object> send(DevTools devTools, String method, Map<String, Object> params) {
+        Map<String, Object> result = devTools.send(new Command<>(method, params, AS_MAP));
+        return result == null ? Map.of() : result;
+    }
+
+    /** Subscribes to a CDP event; the handler receives the raw event params. */
+    public static void on(DevTools devTools, String event, Consumer<Map<String, Object>> handler) {
+        devTools.addListener(new Event<>(event, AS_MAP), handler);
+    }
+
+    /** Reads a nested string field, or null. */
+    public static String str(Map<String, Object> map, String key) {
+        Object v = map == null ? null : map.get(key);
+        return v == null ? null : String.valueOf(v);
+    }
+
+    /** Reads a nested number field, or the fallback. */
+    public static double num(Map<String, Object> map, String key, double fallback) {
+        Object v = map == null ? null : map.get(key);
+        return (v instanceof Number) ? ((Number) v).doubleValue() : fallback;
+    }
+
+    /** Reads a nested object field, or an empty map. */
+    @SuppressWarnings("unchecked")
+    public static Map<String, Object> obj(Map<String, Object> map, String key) {
+        Object v = map == null ? null : map.get(key);
+        return (v instanceof Map) ? (Map<String, Object>) v : Map.of();
+    }
+}
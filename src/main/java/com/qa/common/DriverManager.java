@@ -17,14 +17,15 @@ import org.openqa.selenium.devtools.v127.network.model.Response;
 
 import org.openqa.selenium.support.ui.WebDriverWait;
 
-import java.net.InetAddress;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.file.Path;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class DriverManager {
 
@@ -51,9 +52,25 @@ public class DriverManager {
 
     // ---- CDP bits (Chrome/Edge) ----
     private static final ThreadLocal<DevTools> TL_DEVTOOLS = new ThreadLocal<>();
-    private static final ThreadLocal<String> TL_NET_ERROR = new ThreadLocal<>();
-    private static final ThreadLocal<String> TL_NET_ERROR_TYPE = new ThreadLocal<>();
-    private static final ThreadLocal<Integer> TL_DOC_STATUS = new ThreadLocal<>();
+
+    // CDP listeners run on the CDP connection thread, so what they observe is kept per browser, not per thread
+    private static final Map<WebDriver, NavigationSignals> NAV_SIGNALS = new ConcurrentHashMap<>();
+
+    // Every browser started and not yet quit (including ones parked by SessionPool), for quitAllDrivers()
+    private static final Map<WebDriver, BrowserSession> OPEN_BROWSERS = new ConcurrentHashMap<>();
+
+    /** Main-document HTTP status and critical network failure seen by CDP during the current navigation. */
+    private static final class NavigationSignals {
+        volatile String netError;
+        volatile String netErrorType;
+        volatile Integer docStatus;
+
+        void reset() {
+            netError = null;
+            netErrorType = null;
+            docStatus = null;
+        }
+    }
 
     // ====================================================================================
     // Public API
@@ -72,10 +89,22 @@ public class DriverManager {
                 : CONFIG.getConfigProps().getProperty("headlessMode", "false");
         final boolean headless = "true".equalsIgnoreCase(headlessFlag);
 
+        // Resolve portal hosts in parallel while the driver binary is being set up
+        HostPrewarmer.prewarmAsync();
+
         switch (browserName.toLowerCase()) {
             case "chrome": {
                 WebDriverManager.chromedriver().setup();
-                ChromeDriver chromeDriver = new ChromeDriver(buildChromeOptions(headless));
+                HostPrewarmer.awaitPrewarm();
+                BrowserCacheManager.CacheLease cacheLease = BrowserCacheManager.acquire();
+                ChromeDriver chromeDriver;
+                try {
+                    chromeDriver = new ChromeDriver(buildChromeOptions(headless, cacheLease));
+                } catch (RuntimeException e) {
+                    BrowserCacheManager.release(cacheLease); // slot lock + throwaway profile
+                    throw e;
+                }
+                BrowserCacheManager.bind(chromeDriver, cacheLease);
                 tlDriver.set(chromeDriver);
                 initDevToolsIfSupported(chromeDriver);
                 applyCdpDownloadBehaviorForChrome(chromeDriver);
@@ -83,6 +112,7 @@ public class DriverManager {
             }
             case "edge": {
                 WebDriverManager.edgedriver().setup();
+                HostPrewarmer.awaitPrewarm();
                 EdgeDriver edgeDriver = new EdgeDriver(buildEdgeOptions(headless));
                 tlDriver.set(edgeDriver);
                 initDevToolsIfSupported(edgeDriver);
@@ -110,6 +140,7 @@ public class DriverManager {
         }
 
         WebDriver driver = getDriver();
+        OPEN_BROWSERS.put(driver, new BrowserSession(driver, TL_DEVTOOLS.get(), null));
         driver.manage().deleteAllCookies();
         try {
             driver.manage().window().maximize(); // harmless in headless (no-op)
@@ -117,6 +148,7 @@ public class DriverManager {
         driver.manage().timeouts().implicitlyWait(implicitWait);
         driver.manage().timeouts().pageLoadTimeout(pageLoadTimeout);
         driver.manage().timeouts().scriptTimeout(scriptTimeout);
+        HostPrewarmer.warmConnections(driver);
         return driver;
     }
 
@@ -132,20 +164,19 @@ public class DriverManager {
             throw new IllegalStateException("WebDriver is not initialized. Call initializeBrowser() first.");
         }
 
-        // Best-effort DNS preflight (non-fatal if it fails due to proxies/VPN)
+        // Best-effort DNS preflight (non-fatal if it fails due to proxies/VPN); answered from the prewarm cache
         try {
-            String host = URI.create(url).getHost();
-            if (host != null) InetAddress.getByName(host);
+            HostPrewarmer.resolve(URI.create(url).getHost());
         } catch (Exception e) {
             TestUtils.log().warn("DNS preflight resolve failed (non-fatal): {}", e.toString());
         }
 
         RuntimeException last = null;
+        long navigationStart = System.nanoTime();
+        NavigationSignals signals = NAV_SIGNALS.getOrDefault(driver, new NavigationSignals());
 
         for (int attempt = 1; attempt <= NAVIGATION_RETRY_COUNT; attempt++) {
-            TL_NET_ERROR.remove();
-            TL_NET_ERROR_TYPE.remove();
-            TL_DOC_STATUS.remove();
+            signals.reset();
 
             URI uri = null;
             try {
@@ -159,20 +190,21 @@ public class DriverManager {
             TestUtils.log().info("🌐 Navigating to: {} (attempt {}/{})", portalName, attempt, NAVIGATION_RETRY_COUNT);
 
             try {
+                PageLoadProbe.reset();
                 driver.navigate().to(url);
 
                 // Wait up to NAVIGATION_MAX_WAIT_SEC for readyState=complete
                 waitForDocumentReady(driver, NAVIGATION_MAX_WAIT_SEC);
 
                 // If CDP observed a document-level failure (rare after 'complete', but check)
-                String netErr = TL_NET_ERROR.get();
-                String type = TL_NET_ERROR_TYPE.get();
+                String netErr = signals.netError;
+                String type = signals.netErrorType;
                 if (netErr != null && isCriticalResource(type)) {
                     throw new RuntimeException("Document network error: " + netErr);
                 }
 
                 // If we captured HTTP status for the main document and it is 4xx/5xx
-                Integer status = TL_DOC_STATUS.get();
+                Integer status = signals.docStatus;
                 if (status != null && status >= 400) {
                     throw new RuntimeException("HTTP " + status + " for document");
                 }
@@ -182,7 +214,12 @@ public class DriverManager {
                     throw new RuntimeException("Browser network error page detected");
                 }
 
-                TestUtils.log().info("✅ Navigation healthy to : {}", portalName);
+                long elapsedMs = Duration.ofNanos(System.nanoTime() - navigationStart).toMillis();
+                PageLoadProbe.capture(driver);
+                HostPrewarmer.closeWarmupTabs(driver);
+                NavigationTimings.record(portalName, url, elapsedMs, attempt);
+                TestUtils.log().info("✅ Navigation healthy to : {} in {} ms (emulation: {})",
+                        portalName, elapsedMs, EmulationProfiles.activeProfile());
                 return; // success, stop retrying
 
             } catch (RuntimeException e) {
@@ -201,30 +238,81 @@ public class DriverManager {
                 : new RuntimeException("Navigation health check failed after retries for: " + url);
     }
 
-    public static synchronized WebDriver getDriver() {
+    public static WebDriver getDriver() {
         return tlDriver.get();
     }
 
-    public static synchronized void quitDriver() {
+    /** CDP session of the current thread's browser (Chrome/Edge), or null. */
+    public static DevTools getDevTools() {
+        return TL_DEVTOOLS.get();
+    }
+
+    /** A started browser detached from its thread, so it can be parked and resumed later (see SessionPool). */
+    public record BrowserSession(WebDriver driver, DevTools devTools, String emulationProfile) {}
+
+    /**
+     * Detaches the current thread's browser without quitting it.
+     * Returns null when the thread has no browser.
+     */
+    public static BrowserSession detachSession() {
+        WebDriver driver = tlDriver.get();
+        if (driver == null) return null;
+        BrowserSession session = new BrowserSession(driver, TL_DEVTOOLS.get(), EmulationProfiles.activeProfile());
+        tlDriver.remove();
+        TL_DEVTOOLS.remove();
+        EmulationProfiles.clear();
+        PageLoadProbe.clear();
+        return session;
+    }
+
+    /** Makes a previously detached browser the current thread's browser. */
+    public static void attachSession(BrowserSession session) {
+        tlDriver.set(session.driver());
+        if (session.devTools() != null) {
+            TL_DEVTOOLS.set(session.devTools());
+        }
+        EmulationProfiles.adopt(session.emulationProfile());
+    }
+
+    public static void quitDriver() {
         try {
             // Clean up DevTools listeners if present (no disconnect() in modern Selenium)
             DevTools dt = TL_DEVTOOLS.get();
             if (dt != null) {
                 try { dt.clearListeners(); } catch (Exception ignore) {}
+                PageLoadProbe.detach(dt);
             }
 
             WebDriver driver = tlDriver.get();
             if (driver != null) {
+                OPEN_BROWSERS.remove(driver);
+                NAV_SIGNALS.remove(driver);
+                HostPrewarmer.forget(driver);
                 driver.quit();
             }
         } catch (Exception e) {
             TestUtils.log().warn("Error while quitting driver: {}", e.getMessage());
         } finally {
+            // Also after a failed quit (crashed browser): the cache slot lock and throwaway profile must not leak
+            BrowserCacheManager.release(tlDriver.get());
             tlDriver.remove();
             TL_DEVTOOLS.remove();
-            TL_NET_ERROR.remove();
-            TL_NET_ERROR_TYPE.remove();
-            TL_DOC_STATUS.remove();
+            EmulationProfiles.clear();
+            BrowserMetrics.clear();
+            PageLoadProbe.clear();
+            NetworkArchive.flush();
+        }
+    }
+
+    /**
+     * Quits every browser still open in this JVM, whichever worker thread started it
+     * (parallel mode: @AfterAll runs on one thread only).
+     */
+    public static void quitAllDrivers() {
+        quitDriver();
+        for (BrowserSession session : new ArrayList<>(OPEN_BROWSERS.values())) {
+            attachSession(session);
+            quitDriver();
         }
     }
 
@@ -243,16 +331,23 @@ public class DriverManager {
                 return; // Firefox/Safari: no CDP
             }
 
+            NavigationSignals signals = NAV_SIGNALS.computeIfAbsent(driver, d -> new NavigationSignals());
             devTools.createSession();
             devTools.send(Network.enable(Optional.empty(), Optional.empty(), Optional.empty()));
 
+            // Optional offline record/replay of all network exchanges (network.mode)
+            NetworkArchive.attach(devTools);
+
+            // Bytes-on-the-wire counter for page load measurements
+            PageLoadProbe.attach(devTools);
+
             // Capture HTTP status for main document
             devTools.addListener(Network.responseReceived(), event -> {
                 if (event.getType() != null && "Document".equalsIgnoreCase(event.getType().toString())) {
                     Response response = event.getResponse();
                     if (response != null) {
                         int statusCode = (int) response.getStatus();
-                        TL_DOC_STATUS.set(statusCode);
+                        signals.docStatus = statusCode;
                     }
                 }
             });
@@ -274,8 +369,8 @@ public class DriverManager {
                     return;
                 }
 
-                TL_NET_ERROR.set(err);
-                TL_NET_ERROR_TYPE.set(lowerType);
+                signals.netError = err;
+                signals.netErrorType = lowerType;
                 TestUtils.log().error("❌ Network Failure ({}): {}", type, err);
             });
 
@@ -333,7 +428,7 @@ public class DriverManager {
     // Options builders
     // ====================================================================================
 
-    private ChromeOptions buildChromeOptions(boolean isHeadless) {
+    private ChromeOptions buildChromeOptions(boolean isHeadless, BrowserCacheManager.CacheLease cacheLease) {
         ChromeOptions options = new ChromeOptions();
         if (isHeadless) {
             options.addArguments("--headless=new", "--window-size=1920,1080");
@@ -359,8 +454,18 @@ public class DriverManager {
 
         options.setExperimentalOption("prefs", prefs);
 
+        if (cacheLease != null) {
+            // Persistent shared asset cache; the fresh profile keeps cookies/storage isolated like incognito
+            options.addArguments(
+                    "--user-data-dir=" + cacheLease.profileDir(),
+                    "--disk-cache-dir=" + cacheLease.cacheDir(),
+                    "--disk-cache-size=" + BrowserCacheManager.maxSizeBytes()
+            );
+        } else {
+            options.addArguments("--incognito");
+        }
+
         options.addArguments(
-                "--incognito",
                 "--disable-save-password-bubble",
                 "--disable-popup-blocking",
                 "--no-sandbox",
@@ -374,6 +479,11 @@ public class DriverManager {
             options.addArguments("--unsafely-treat-insecure-origin-as-secure=" + baseUrl);
         }
 
+        String resolverRules = HostPrewarmer.hostResolverRules();
+        if (!resolverRules.isEmpty()) {
+            options.addArguments("--host-resolver-rules=" + resolverRules);
+        }
+
         options.setPageLoadStrategy(PageLoadStrategy.NORMAL);
         return options;
     }
@@ -405,6 +515,11 @@ public class DriverManager {
                 "--allow-insecure-localhost"
         );
 
+        String resolverRules = HostPrewarmer.hostResolverRules();
+        if (!resolverRules.isEmpty()) {
+            options.addArguments("--host-resolver-rules=" + resolverRules);
+        }
+
         options.setPageLoadStrategy(PageLoadStrategy.NORMAL);
         return options;
     }
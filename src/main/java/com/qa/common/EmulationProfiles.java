@@ -0,0 +1,149 @@
+package com.qa.common;
+
+import com.qa.utils.ConfigManager;
+import com.qa.utils.TestUtils;
+import org.openqa.selenium.devtools.DevTools;
+
+import java.util.*;
+
+/**
+ * Named network/CPU emulation profiles applied over CDP (Chrome/Edge):
+ * Network.emulateNetworkConditions + Emulation.setCPUThrottlingRate.
+ * Selection:
+ * - run level  : emulation.profile=fast-3g (or "fast-3g+cpu-4x" to combine a network and a CPU profile)
+ * - per scenario: tag @emulation:slow-4g (overrides the run level profile for that scenario)
+ * Profiles can be added/overridden in config.properties:
+ *   emulation.profile.&lt;name&gt;=latencyMs,downloadKbps,uploadKbps,cpuRate   (-1 leaves that part untouched)
+ */
+public final class EmulationProfiles {
+
+    private static final ConfigManager CONFIG = new ConfigManager();
+    private static final String NONE = "none";
+    private static final String TAG_PREFIX = "@emulation:";
+
+    private static final ThreadLocal<String> TL_ACTIVE = ThreadLocal.withInitial(() -> NONE);
+
+    /** latency in ms, throughput in kbit/s; -1 = not part of this profile. */
+    record Profile(double latencyMs, double downloadKbps, double uploadKbps, double cpuRate) {
+        boolean hasNetwork() { return latencyMs >= 0 || downloadKbps >= 0 || uploadKbps >= 0; }
+        boolean hasCpu() { return cpuRate >= 1; }
+    }
+
+    // Defaults follow the Chrome DevTools throttling presets
+    private static final Map<String, Profile> BUILT_IN = Map.of(
+            "slow-3g", new Profile(2000, 400, 400, -1),
+            "fast-3g", new Profile(562.5, 1440, 675, -1),
+            "slow-4g", new Profile(150, 1600, 750, -1),
+            "fast-4g", new Profile(60, 9000, 1500, -1),
+            "cpu-2x", new Profile(-1, -1, -1, 2),
+            "cpu-4x", new Profile(-1, -1, -1, 4),
+            "cpu-6x", new Profile(-1, -1, -1, 6)
+    );
+
+    // Prevent instantiation
+    private EmulationProfiles() {
+        throw new UnsupportedOperationException("Common class");
+    }
+
+    /** Profile active on this thread's browser ("none" when not throttled). */
+    public static String activeProfile() {
+        return TL_ACTIVE.get();
+    }
+
+    /**
+     * Applies the scenario's @emulation:&lt;name&gt; tag, or the run level emulation.profile,
+     * to the current browser. Resets throttling when neither is set.
+     */
+    public static void applyForScenario(Collection<String> scenarioTags) {
+        String selected = CONFIG.getConfigProps().getProperty("emulation.profile", NONE).trim();
+        for (String tag : scenarioTags) {
+            if (tag.toLowerCase(Locale.ROOT).startsWith(TAG_PREFIX)) {
+                selected = tag.substring(TAG_PREFIX.length()).trim();
+            }
+        }
+        apply(selected.isEmpty() ? NONE : selected);
+    }
+
+    /** Applies a profile name (or '+'-joined combination) to the current browser. */
+    public static void apply(String name) {
+        String normalized = name.toLowerCase(Locale.ROOT);
+        if (normalized.equals(TL_ACTIVE.get())) return;
+
+        DevTools devTools = DriverManager.getDevTools();
+        if (devTools == null) {
+            if (!NONE.equals(normalized)) {
+                TestUtils.log().warn("Emulation profile '{}' ignored: browser has no CDP session.", name);
+            }
+            return;
+        }
+
+        Profile network = new Profile(0, -1, -1, -1); // "no throttling" values
+        double cpuRate = 1;
+        if (!NONE.equals(normalized)) {
+            for (String part : normalized.split("\\+")) {
+                Profile p = resolve(part.trim());
+                if (p == null) {
+                    TestUtils.log().warn("Unknown emulation profile '{}'. Known: {}", part, knownProfiles());
+                    continue;
+                }
+                if (p.hasNetwork()) network = p;
+                if (p.hasCpu()) cpuRate = p.cpuRate();
+            }
+        }
+
+        try {
+            Map<String, Object> conditions = new HashMap<>();
+            conditions.put("offline", false);
+            conditions.put("latency", Math.max(0, network.latencyMs()));
+            conditions.put("downloadThroughput", toBytesPerSec(network.downloadKbps()));
+            conditions.put("uploadThroughput", toBytesPerSec(network.uploadKbps()));
+            CdpSupport.send(devTools, "Network.emulateNetworkConditions", conditions);
+            CdpSupport.send(devTools, "Emulation.setCPUThrottlingRate", Map.of("rate", cpuRate));
+            TL_ACTIVE.set(normalized);
+            TestUtils.log().info("Emulation profile applied: {} (latency={}ms, down={}kbps, up={}kbps, cpu={}x)",
+                    normalized, network.latencyMs(), network.downloadKbps(), network.uploadKbps(), cpuRate);
+        } catch (Exception e) {
+            TestUtils.log().warn("Failed to apply emulation profile '{}': {}", name, e.getMessage());
+        }
+    }
+
+    /** Takes over the profile already active on a browser resumed on this thread. */
+    static void adopt(String profile) {
+        TL_ACTIVE.set(profile == null ? NONE : profile);
+    }
+
+    /** Forget the per-thread state (browser quit). */
+    public static void clear() {
+        TL_ACTIVE.remove();
+    }
+
+    private static Profile resolve(String name) {
+        String custom = CONFIG.getConfigProps().getProperty("emulation.profile." + name);
+        if (custom != null && !custom.isBlank()) {
+            String[] v = custom.split(",");
+            if (v.length == 4) {
+                try {
+                    return new Profile(Double.parseDouble(v[0].trim()), Double.parseDouble(v[1].trim()),
+                            Double.parseDouble(v[2].trim()), Double.parseDouble(v[3].trim()));
+                } catch (NumberFormatException e) {
+                    TestUtils.log().warn("Invalid emulation.profile.{} value '{}'", name, custom);
+                }
+            } else {
+                TestUtils.log().warn("emulation.profile.{} must be latencyMs,downloadKbps,uploadKbps,cpuRate", name);
+            }
+        }
+        return BUILT_IN.get(name);
+    }
+
+    private static Set<String> knownProfiles() {
+        Set<String> names = new TreeSet<>(BUILT_IN.keySet());
+        for (String key : CONFIG.getConfigProps().stringPropertyNames()) {
+            if (key.startsWith("emulation.profile.")) names.add(key.substring("emulation.profile.".length()));
+        }
+        return names;
+    }
+
+    private static double toBytesPerSec(double kbps) {
+        return kbps < 0 ? -1 : kbps * 1000 / 8;
+    }
+}
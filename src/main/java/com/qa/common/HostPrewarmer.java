@@ -0,0 +1,246 @@
+package com.qa.common;
+
+import com.qa.utils.ConfigManager;
+import com.qa.utils.SecKeys;
+import com.qa.utils.SecureConfig;
+import com.qa.utils.TestUtils;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.chromium.ChromiumDriver;
+
+import java.net.Inet4Address;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.UnknownHostException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolves the application base URL and portal hosts once per run (in parallel)
+ * so DNS lookups are taken off the critical path of each scenario's first navigation.
+ * Chrome/Edge:
+ * - hosts with a single address are pinned via --host-resolver-rules; hosts resolving to several
+ *   addresses (CDNs, load balancers) are left to the browser's resolver so it can fail over
+ * - right after start, one background tab per portal origin requests prewarm.warmupPath. Being top-level
+ *   navigations, their TCP/TLS connections land in the socket pool partition the scenario's first navigation
+ *   to that site uses, so it reuses them; the tabs are closed once that navigation is done
+ */
+public final class HostPrewarmer {
+
+    private static final ConfigManager CONFIG = new ConfigManager();
+
+    private static final long RESOLVE_TIMEOUT_SEC = 10;
+
+    // host -> first usable address (resolved once per JVM / run)
+    private static final Map<String, InetAddress> RESOLVED = new ConcurrentHashMap<>();
+    private static final Set<String> MULTI_ADDRESS = ConcurrentHashMap.newKeySet();
+    // browser -> CDP target ids of its warm-up tabs, closed after its first navigation
+    private static final Map<WebDriver, List<String>> WARMUP_TABS = new ConcurrentHashMap<>();
+    private static volatile CompletableFuture<Void> prewarm;
+
+    // Prevent instantiation
+    private HostPrewarmer() {
+        throw new UnsupportedOperationException("Common class");
+    }
+
+    public static boolean isEnabled() {
+        return "true".equalsIgnoreCase(CONFIG.getConfigProps().getProperty("prewarm.enabled", "true"));
+    }
+
+    private static boolean isPinningEnabled() {
+        return "true".equalsIgnoreCase(CONFIG.getConfigProps().getProperty("prewarm.pinHosts", "true"));
+    }
+
+    /**
+     * Starts the one-time parallel resolution of all portal hosts.
+     * Safe to call from every browser start; only the first call does the work.
+     */
+    public static CompletableFuture<Void> prewarmAsync() {
+        if (!isEnabled()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Void> current = prewarm;
+        if (current == null) {
+            synchronized (HostPrewarmer.class) {
+                if (prewarm == null) {
+                    prewarm = startPrewarm();
+                }
+                current = prewarm;
+            }
+        }
+        return current;
+    }
+
+    /** Blocks until the prewarm stage has finished (bounded by the resolve timeout). */
+    public static void awaitPrewarm() {
+        try {
+            prewarmAsync().get(RESOLVE_TIMEOUT_SEC, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            TestUtils.log().warn("Host prewarm did not complete (non-fatal): {}", e.toString());
+        }
+    }
+
+    /**
+     * Cached host lookup. Hosts resolved during prewarm are answered from memory;
+     * anything else is resolved once and cached.
+     */
+    public static Optional<InetAddress> resolve(String host) {
+        if (host == null || host.isBlank()) return Optional.empty();
+        String key = host.toLowerCase(Locale.ROOT);
+        InetAddress cached = RESOLVED.get(key);
+        if (cached != null) return Optional.of(cached);
+        try {
+            InetAddress[] all = InetAddress.getAllByName(host);
+            InetAddress address = pickAddress(all);
+            if (all.length > 1) MULTI_ADDRESS.add(key);
+            RESOLVED.put(key, address);
+            return Optional.of(address);
+        } catch (UnknownHostException e) {
+            TestUtils.log().warn("DNS resolve failed for {} (non-fatal): {}", host, e.toString());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Builds the Chromium --host-resolver-rules value for every prewarmed host with a single address,
+     * e.g. "MAP portal.example.org 10.0.0.5,MAP api.example.org [2001:db8::1]".
+     * Returns an empty string when pinning is disabled or nothing was resolved.
+     */
+    public static String hostResolverRules() {
+        if (!isEnabled() || !isPinningEnabled() || RESOLVED.isEmpty()) return "";
+        StringJoiner rules = new StringJoiner(",");
+        new TreeMap<>(RESOLVED).forEach((host, address) -> {
+            if (MULTI_ADDRESS.contains(host)) return; // one pinned address would disable failover
+            String ip = address.getHostAddress();
+            if (address instanceof Inet6Address) {
+                ip = "[" + ip + "]";
+            }
+            rules.add("MAP " + host + " " + ip);
+        });
+        return rules.toString();
+    }
+
+    /**
+     * Opens the warm-up tabs (Chrome/Edge, live network only). Returns at once; the requests run while the
+     * hooks prepare the scenario. Best-effort: failures are only logged.
+     */
+    public static void warmConnections(WebDriver driver) {
+        String path = CONFIG.getConfigProps().getProperty("prewarm.warmupPath", "/favicon.ico").trim();
+        if (!isEnabled() || path.isEmpty() || !(driver instanceof ChromiumDriver chromium)
+                || NetworkArchive.mode() != NetworkArchive.Mode.LIVE) return;
+        List<String> targets = new ArrayList<>();
+        for (String origin : portalOrigins()) {
+            try {
+                Map<String, Object> created = chromium.executeCdpCommand("Target.createTarget",
+                        Map.of("url", origin + (path.startsWith("/") ? path : "/" + path), "background", true));
+                targets.add(String.valueOf(created.get("targetId")));
+            } catch (Exception e) {
+                TestUtils.log().warn("Connection warm-up skipped for {} (non-fatal): {}", origin, e.getMessage());
+            }
+        }
+        if (!targets.isEmpty()) {
+            WARMUP_TABS.put(driver, targets);
+            TestUtils.log().info("Connection warm-up started for {} origin(s)", targets.size());
+        }
+    }
+
+    /** Closes the browser's warm-up tabs (after its first navigation); their connections stay pooled. */
+    public static void closeWarmupTabs(WebDriver driver) {
+        List<String> targets = driver == null ? null : WARMUP_TABS.remove(driver);
+        if (targets == null || !(driver instanceof ChromiumDriver chromium)) return;
+        for (String targetId : targets) {
+            try {
+                chromium.executeCdpCommand("Target.closeTarget", Map.of("targetId", targetId));
+            } catch (Exception e) {
+                TestUtils.log().debug("Warm-up tab {} not closed: {}", targetId, e.getMessage());
+            }
+        }
+    }
+
+    /** Drops the warm-up state of a browser that is being quit. */
+    public static void forget(WebDriver driver) {
+        if (driver != null) WARMUP_TABS.remove(driver);
+    }
+
+    // ====================================================================================
+    // Internal helpers
+    // ====================================================================================
+
+    private static CompletableFuture<Void> startPrewarm() {
+        Set<String> hosts = new LinkedHashSet<>();
+        for (String origin : portalOrigins()) {
+            hosts.add(URI.create(origin).getHost().toLowerCase(Locale.ROOT));
+        }
+        if (hosts.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        long started = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(hosts.size(), r -> {
+            Thread t = new Thread(r, "host-prewarm");
+            t.setDaemon(true);
+            return t;
+        });
+        CompletableFuture<?>[] lookups = hosts.stream()
+                .map(host -> CompletableFuture.runAsync(() -> resolve(host), pool))
+                .toArray(CompletableFuture[]::new);
+
+        return CompletableFuture.allOf(lookups).whenComplete((v, err) -> {
+            pool.shutdown();
+            TestUtils.log().info("Host prewarm resolved {}/{} host(s) in {} ms",
+                    RESOLVED.size(), hosts.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        });
+    }
+
+    /**
+     * Distinct scheme://host[:port] origins of the base URL, the portals built in BasePage.navigate
+     * (portal values may be relative paths or absolute URLs) and any extra hosts from config
+     * (prewarm.extraHosts, e.g. the identity provider).
+     */
+    private static List<String> portalOrigins() {
+        Set<String> origins = new LinkedHashSet<>();
+        String baseUrl = SecureConfig.value(SecKeys.AMFIAPPLICATIONBASEURL);
+        addOrigin(origins, baseUrl);
+        for (String portalKey : new String[]{SecKeys.ADMINPORTAL, SecKeys.TRAINERPORTAL, SecKeys.BENEFICIARYPORTAL}) {
+            String portal = SecureConfig.value(portalKey);
+            if (portal != null && portal.matches("(?i)^https?://.*")) {
+                addOrigin(origins, portal);
+            }
+        }
+        String extra = CONFIG.getConfigProps().getProperty("prewarm.extraHosts", "");
+        for (String h : extra.split(",")) {
+            String host = h.trim();
+            if (!host.isEmpty()) {
+                addOrigin(origins, host.contains("://") ? host : "https://" + host);
+            }
+        }
+        return new ArrayList<>(origins);
+    }
+
+    private static void addOrigin(Set<String> origins, String url) {
+        if (url == null || url.isBlank()) return;
+        try {
+            URI uri = URI.create(url.trim());
+            if (uri.getHost() == null) return;
+            String scheme = uri.getScheme() == null ? "https" : uri.getScheme().toLowerCase(Locale.ROOT);
+            origins.add(scheme + "://" + uri.getHost().toLowerCase(Locale.ROOT)
+                    + (uri.getPort() > 0 ? ":" + uri.getPort() : ""));
+        } catch (IllegalArgumentException e) {
+            TestUtils.log().warn("Skipping invalid prewarm URL: {}", e.getMessage());
+        }
+    }
+
+    /** Prefer IPv4 (what most CI runners route), fall back to the first address returned. */
+    private static InetAddress pickAddress(InetAddress[] all) {
+        for (InetAddress a : all) {
+            if (a instanceof Inet4Address) return a;
+        }
+        return all[0];
+    }
+}
@@ -0,0 +1,47 @@
+package com.qa.common;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * Per-thread log of navigations done through DriverManager.checkNavigationHealth in the current scenario,
+ * together with the emulation profile that was active, so hooks can put both into the report.
+ */
+public final class NavigationTimings {
+
+    private static final ThreadLocal<List<Entry>> TL_ENTRIES = ThreadLocal.withInitial(ArrayList::new);
+
+    // Prevent instantiation
+    private NavigationTimings() {
+        throw new UnsupportedOperationException("Common class");
+    }
+
+    public record Entry(String portal, String url, long millis, int attempts, String emulationProfile) {}
+
+    public static void record(String portal, String url, long millis, int attempts) {
+        TL_ENTRIES.get().add(new Entry(portal, url, millis, attempts, EmulationProfiles.activeProfile()));
+    }
+
+    /** Navigations of this thread since the last drain. */
+    public static List<Entry> entries() {
+        return List.copyOf(TL_ENTRIES.get());
+    }
+
+    /** Returns and clears this thread's navigations (called at the end of each scenario). */
+    public static List<Entry> drain() {
+        List<Entry> out = entries();
+        TL_ENTRIES.remove();
+        return out;
+    }
+
+    /** One-line summary, e.g. "[profile fast-3g] admin-app=2310 ms (1 attempt)". */
+    public static String summarize(List<Entry> entries) {
+        StringJoiner joiner = new StringJoiner("; ");
+        for (Entry e : entries) {
+            joiner.add("[profile " + e.emulationProfile() + "] " + e.portal() + "=" + e.millis() + " ms ("
+                    + e.attempts() + (e.attempts() == 1 ? " attempt)" : " attempts)"));
+        }
+        return joiner.toString();
+    }
+}
@@ -0,0 +1,386 @@
+package com.qa.common;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.qa.utils.ConfigManager;
+import com.qa.utils.TestUtils;
+import org.openqa.selenium.devtools.DevTools;
+
+import java.io.*;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * CDP Fetch based record/replay of all network exchanges (Chrome/Edge).
+ * network.mode=record : every response is paused via Fetch.requestPaused, its body captured and the
+ *                       exchange appended to a gzip'd JSON-lines archive (network.archive) on driver quit.
+ * network.mode=replay : requests are answered from the archive with Fetch.fulfillRequest, so the framework
+ *                       (DriverManager, Waits, BasePage, hooks) can be exercised offline and deterministically.
+ *                       Unknown requests fail with InternetDisconnected unless network.replay.passthrough=true.
+ * network.mode=live   : (default) nothing is intercepted.
+ * Volatile query params (network.replay.ignoreParams, e.g. Keycloak state/nonce) are dropped from the match key.
+ * The archive is plain gzip, so every exchange goes through {@link #redact(Exchange)} before it is kept:
+ * - Cookie/Authorization request header values become {@value #REDACTED}; Set-Cookie response headers are dropped
+ * - network.record.redactFields (credentials, OTP) and network.record.redactParams (one-time OIDC values such as
+ *   code/session_state) become {@value #REDACTED} in request URLs, form/JSON request bodies and Location headers
+ * - network.record.redactResponseFields (access/refresh/id tokens) become {@value #REDACTED} in JSON response bodies
+ * This is also the replay contract of ProtocolScript: a {@value #REDACTED} field is filled with the virtual user's
+ * credentials, a {@value #REDACTED} Authorization header with the bearer token captured during the iteration, and
+ * redacted params with the values correlated from earlier responses.
+ */
+public final class NetworkArchive {
+
+    private static final ConfigManager CONFIG = new ConfigManager();
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    // Headers that no longer describe a body captured by Fetch.getResponseBody (already decoded)
+    private static final Set<String> DROPPED_RESPONSE_HEADERS = Set.of("content-encoding", "content-length", "transfer-encoding");
+    private static final Set<String> SECRET_RESPONSE_HEADERS = Set.of("set-cookie", "set-cookie2");
+    private static final Set<String> SECRET_REQUEST_HEADERS = Set.of("cookie", "authorization", "proxy-authorization");
+    public static final String REDACTED = "REDACTED";
+
+    private static final Queue<Exchange> RECORDED = new ConcurrentLinkedQueue<>();
+    private static volatile Map<String, List<Exchange>> replayIndex;
+    private static final Map<String, AtomicInteger> REPLAY_CURSOR = new ConcurrentHashMap<>();
+
+    // Prevent instantiation
+    private NetworkArchive() {
+        throw new UnsupportedOperationException("Common class");
+    }
+
+    public enum Mode { LIVE, RECORD, REPLAY }
+
+    /** One captured request/response pair. Body is base64 (as CDP transports it). */
+    public record Exchange(String method, String url, String resourceType, Map<String, String> requestHeaders,
+                           String postData, int status, String statusText,
+                           List<Map<String, String>> responseHeaders, String bodyBase64) {
+
+        Map<String, Object> toMap() {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("method", method);
+            m.put("url", url);
+            m.put("resourceType", resourceType);
+            m.put("requestHeaders", requestHeaders);
+            m.put("postData", postData);
+            m.put("status", status);
+            m.put("statusText", statusText);
+            m.put("responseHeaders", responseHeaders);
+            m.put("body", bodyBase64);
+            return m;
+        }
+
+        @SuppressWarnings("unchecked")
+        static Exchange fromMap(Map<String, Object> m) {
+            Object status = m.get("status");
+            return new Exchange(
+                    (String) m.get("method"),
+                    (String) m.get("url"),
+                    (String) m.get("resourceType"),
+                    (Map<String, String>) m.getOrDefault("requestHeaders", Map.of()),
+                    (String) m.get("postData"),
+                    status instanceof Number ? ((Number) status).intValue() : 200,
+                    (String) m.get("statusText"),
+                    (List<Map<String, String>>) m.getOrDefault("responseHeaders", List.of()),
+                    (String) m.get("body"));
+        }
+    }
+
+    public static Mode mode() {
+        String raw = CONFIG.getConfigProps().getProperty("network.mode", "live").trim().toUpperCase(Locale.ROOT);
+        try {
+            return Mode.valueOf(raw);
+        } catch (IllegalArgumentException e) {
+            TestUtils.log().warn("Invalid network.mode '{}'. Falling back to LIVE.", raw);
+            return Mode.LIVE;
+        }
+    }
+
+    public static Path archivePath() {
+        return Paths.get(CONFIG.getConfigProps().getProperty("network.archive", ".cache/network/smoke-archive.jsonl.gz"));
+    }
+
+    /** Attaches the configured record/replay interception to a freshly created DevTools session. */
+    public static void attach(DevTools devTools) {
+        switch (mode()) {
+            case RECORD -> attachRecorder(devTools);
+            case REPLAY -> attachReplayer(devTools);
+            default -> { /* live: nothing to intercept */ }
+        }
+    }
+
+    /** Writes everything recorded so far (record mode only). Called on driver quit. */
+    public static synchronized void flush() {
+        if (mode() != Mode.RECORD || RECORDED.isEmpty()) return;
+        Path file = archivePath();
+        try {
+            if (file.getParent() != null) Files.createDirectories(file.getParent());
+            try (Writer w = new OutputStreamWriter(new GZIPOutputStream(Files.newOutputStream(file)), StandardCharsets.UTF_8)) {
+                for (Exchange e : RECORDED) {
+                    w.write(MAPPER.writeValueAsString(e.toMap()));
+                    w.write('\n');
+                }
+            }
+            TestUtils.log().info("Network archive written: {} exchange(s) -> {}", RECORDED.size(), file.toAbsolutePath());
+        } catch (IOException e) {
+            TestUtils.log().error("Failed to write network archive {}: {}", file, e.getMessage());
+        }
+    }
+
+    /** Reads an archive written in record mode (also used by the protocol-level load generator). */
+    public static List<Exchange> load(Path file) {
+        List<Exchange> exchanges = new ArrayList<>();
+        try (BufferedReader r = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = r.readLine()) != null) {
+                if (line.isBlank()) continue;
+                exchanges.add(Exchange.fromMap(MAPPER.readValue(line, new TypeReference<Map<String, Object>>() {})));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read network archive: " + file, e);
+        }
+        return exchanges;
+    }
+
+    // ====================================================================================
+    // Record
+    // ====================================================================================
+
+    private static void attachRecorder(DevTools devTools) {
+        CdpSupport.on(devTools, "Fetch.requestPaused", event -> {
+            String requestId = CdpSupport.str(event, "requestId");
+            try {
+                if (event.get("responseErrorReason") == null && event.get("responseStatusCode") != null) {
+                    RECORDED.add(captureExchange(devTools, event, requestId));
+                }
+            } catch (Exception e) {
+                TestUtils.log().debug("Record skipped for {}: {}", requestId, e.getMessage());
+            } finally {
+                continueQuietly(devTools, requestId);
+            }
+        });
+        CdpSupport.send(devTools, "Fetch.enable",
+                Map.of("patterns", List.of(Map.of("urlPattern", "*", "requestStage", "Response"))));
+        TestUtils.log().info("Network RECORD mode enabled -> {}", archivePath().toAbsolutePath());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Exchange captureExchange(DevTools devTools, Map<String, Object> event, String requestId) {
+        Map<String, Object> request = CdpSupport.obj(event, "request");
+        int status = (int) CdpSupport.num(event, "responseStatusCode", 0);
+
+        String body = "";
+        if (status < 300 || status >= 400) { // redirects have no retrievable body
+            Map<String, Object> res = CdpSupport.send(devTools, "Fetch.getResponseBody", Map.of("requestId", requestId));
+            String raw = CdpSupport.str(res, "body");
+            boolean b64 = Boolean.TRUE.equals(res.get("base64Encoded"));
+            body = raw == null ? "" : (b64 ? raw : Base64.getEncoder().encodeToString(raw.getBytes(StandardCharsets.UTF_8)));
+        }
+
+        List<Map<String, String>> headers = new ArrayList<>();
+        Object rawHeaders = event.get("responseHeaders");
+        if (rawHeaders instanceof List) {
+            for (Object h : (List<Object>) rawHeaders) {
+                Map<String, Object> hm = (Map<String, Object>) h;
+                String name = CdpSupport.str(hm, "name");
+                String lower = name == null ? null : name.toLowerCase(Locale.ROOT);
+                if (lower != null && !DROPPED_RESPONSE_HEADERS.contains(lower)) {
+                    headers.add(Map.of("name", name, "value", Objects.toString(hm.get("value"), "")));
+                }
+            }
+        }
+
+        Map<String, String> requestHeaders = new LinkedHashMap<>();
+        CdpSupport.obj(request, "headers").forEach((k, v) -> requestHeaders.put(k, String.valueOf(v)));
+
+        return redact(new Exchange(
+                CdpSupport.str(request, "method"),
+                CdpSupport.str(request, "url"),
+                CdpSupport.str(event, "resourceType"),
+                requestHeaders,
+                CdpSupport.str(request, "postData"),
+                status,
+                CdpSupport.str(event, "responseStatusText"),
+                headers,
+                body));
+    }
+
+    /** The exchange as it may be archived; see the class doc for what is redacted. */
+    public static Exchange redact(Exchange e) {
+        Set<String> fields = new LinkedHashSet<>(csv("network.record.redactFields",
+                "username,password,otp,totp,password-new,password-confirm,client_secret"));
+        fields.addAll(csv("network.record.redactParams", "code,session_state"));
+
+        Map<String, String> requestHeaders = new LinkedHashMap<>();
+        e.requestHeaders().forEach((k, v) -> requestHeaders.put(k,
+                SECRET_REQUEST_HEADERS.contains(k.toLowerCase(Locale.ROOT)) ? REDACTED : v));
+
+        List<Map<String, String>> responseHeaders = new ArrayList<>();
+        String contentType = "";
+        for (Map<String, String> h : e.responseHeaders()) {
+            String lower = Objects.toString(h.get("name"), "").toLowerCase(Locale.ROOT);
+            if (SECRET_RESPONSE_HEADERS.contains(lower)) continue;
+            if (lower.equals("content-type")) contentType = Objects.toString(h.get("value"), "");
+            responseHeaders.add(lower.equals("location")
+                    ? Map.of("name", h.get("name"), "value", redactFields(Objects.toString(h.get("value"), ""), fields))
+                    : h);
+        }
+
+        String body = e.bodyBase64();
+        if (body != null && !body.isEmpty() && contentType.toLowerCase(Locale.ROOT).contains("json")) {
+            String json = new String(Base64.getDecoder().decode(body), StandardCharsets.UTF_8);
+            String redacted = redactFields(json, csv("network.record.redactResponseFields", "access_token,refresh_token,id_token"));
+            if (!redacted.equals(json)) body = Base64.getEncoder().encodeToString(redacted.getBytes(StandardCharsets.UTF_8));
+        }
+
+        return new Exchange(e.method(), redactFields(e.url(), fields), e.resourceType(), requestHeaders,
+                redactFields(e.postData(), fields), e.status(), e.statusText(), responseHeaders, body);
+    }
+
+    /** Replaces the values of {@code fields} in query strings, form-encoded and JSON text by {@value #REDACTED}. */
+    static String redactFields(String text, Collection<String> fields) {
+        if (text == null || text.isEmpty()) return text;
+        String out = text;
+        for (String field : fields) {
+            String name = Pattern.quote(field);
+            out = out.replaceAll("(?i)(^|[?&])(" + name + ")=[^&#]*", "$1$2=" + REDACTED)
+                    .replaceAll("(?i)(\"" + name + "\"\\s*:\\s*)\"(?:[^\"\\\\]|\\\\.)*\"", "$1\"" + REDACTED + "\"");
+        }
+        return out;
+    }
+
+    private static List<String> csv(String key, String defaults) {
+        List<String> out = new ArrayList<>();
+        for (String v : CONFIG.getConfigProps().getProperty(key, defaults).split(",")) {
+            if (!v.isBlank()) out.add(v.trim());
+        }
+        return out;
+    }
+
+    // ====================================================================================
+    // Replay
+    // ====================================================================================
+
+    private static void attachReplayer(DevTools devTools) {
+        Map<String, List<Exchange>> index = replayIndex();
+        boolean passthrough = "true".equalsIgnoreCase(
+                CONFIG.getConfigProps().getProperty("network.replay.passthrough", "false"));
+
+        CdpSupport.on(devTools, "Fetch.requestPaused", event -> {
+            String requestId = CdpSupport.str(event, "requestId");
+            Map<String, Object> request = CdpSupport.obj(event, "request");
+            String key = matchKey(CdpSupport.str(request, "method"), CdpSupport.str(request, "url"));
+            try {
+                Exchange hit = nextFor(index, key);
+                if (hit != null) {
+                    Map<String, Object> params = new HashMap<>();
+                    params.put("requestId", requestId);
+                    params.put("responseCode", hit.status());
+                    params.put("responseHeaders", hit.responseHeaders());
+                    params.put("body", hit.bodyBase64() == null ? "" : hit.bodyBase64());
+                    CdpSupport.send(devTools, "Fetch.fulfillRequest", params);
+                } else if (passthrough) {
+                    continueQuietly(devTools, requestId);
+                } else {
+                    TestUtils.log().warn("Replay miss (no archived response): {}", key);
+                    CdpSupport.send(devTools, "Fetch.failRequest",
+                            Map.of("requestId", requestId, "errorReason", "InternetDisconnected"));
+                }
+            } catch (Exception e) {
+                // Never leave the request paused: the page would hang until pageLoadTimeout
+                TestUtils.log().warn("Replay failed for {}: {}", key, e.getMessage());
+                if (passthrough) {
+                    continueQuietly(devTools, requestId);
+                } else {
+                    failQuietly(devTools, requestId);
+                }
+            }
+        });
+        CdpSupport.send(devTools, "Fetch.enable",
+                Map.of("patterns", List.of(Map.of("urlPattern", "*", "requestStage", "Request"))));
+        TestUtils.log().info("Network REPLAY mode enabled from {} ({} distinct request(s))",
+                archivePath().toAbsolutePath(), index.size());
+    }
+
+    private static Map<String, List<Exchange>> replayIndex() {
+        Map<String, List<Exchange>> index = replayIndex;
+        if (index == null) {
+            synchronized (NetworkArchive.class) {
+                if (replayIndex == null) {
+                    Map<String, List<Exchange>> built = new HashMap<>();
+                    Path file = archivePath();
+                    if (Files.exists(file)) {
+                        for (Exchange e : load(file)) {
+                            built.computeIfAbsent(matchKey(e.method(), e.url()), k -> new ArrayList<>()).add(e);
+                        }
+                    } else {
+                        TestUtils.log().error("Network archive not found for replay: {}", file.toAbsolutePath());
+                    }
+                    replayIndex = built;
+                }
+                index = replayIndex;
+            }
+        }
+        return index;
+    }
+
+    /** Identical requests are served in recorded order; the last recording repeats once exhausted. */
+    private static Exchange nextFor(Map<String, List<Exchange>> index, String key) {
+        List<Exchange> candidates = index.get(key);
+        if (candidates == null || candidates.isEmpty()) return null;
+        int i = REPLAY_CURSOR.computeIfAbsent(key, k -> new AtomicInteger()).getAndIncrement();
+        return candidates.get(Math.min(i, candidates.size() - 1));
+    }
+
+    /** METHOD + URL without fragment and without volatile query params (sorted for stability). */
+    static String matchKey(String method, String url) {
+        Set<String> ignored = new HashSet<>();
+        for (String p : CONFIG.getConfigProps()
+                .getProperty("network.replay.ignoreParams", "state,nonce,code,session_state,_").split(",")) {
+            if (!p.isBlank()) ignored.add(p.trim());
+        }
+        String base = url;
+        List<String> kept = new ArrayList<>();
+        try {
+            URI uri = URI.create(url);
+            base = uri.getScheme() + "://" + uri.getRawAuthority() + Objects.toString(uri.getRawPath(), "");
+            if (uri.getRawQuery() != null) {
+                for (String pair : uri.getRawQuery().split("&")) {
+                    String name = pair.contains("=") ? pair.substring(0, pair.indexOf('=')) : pair;
+                    if (!ignored.contains(name)) kept.add(pair);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            // data:/blob: or malformed URLs: match verbatim
+        }
+        Collections.sort(kept);
+        return Objects.toString(method, "GET").toUpperCase(Locale.ROOT) + " " + base
+                + (kept.isEmpty() ? "" : "?" + String.join("&", kept));
+    }
+
+    private static void failQuietly(DevTools devTools, String requestId) {
+        try {
+            CdpSupport.send(devTools, "Fetch.failRequest", Map.of("requestId", requestId, "errorReason", "Failed"));
+        } catch (Exception e) {
+            TestUtils.log().debug("Fetch.failRequest failed for {}: {}", requestId, e.getMessage());
+        }
+    }
+
+    private static void continueQuietly(DevTools devTools, String requestId) {
+        try {
+            CdpSupport.send(devTools, "Fetch.continueRequest", Map.of("requestId", requestId));
+        } catch (Exception e) {
+            TestUtils.log().debug("Fetch.continueRequest failed for {}: {}", requestId, e.getMessage());
+        }
+    }
+}
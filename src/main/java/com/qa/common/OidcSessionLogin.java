@@ -0,0 +1,215 @@
+package com.qa.common;
+
+import com.qa.utils.BasePage;
+import com.qa.utils.ConfigManager;
+import com.qa.utils.EmailManager;
+import com.qa.utils.TestUtils;
+import com.qa.utils.TotpGenerator;
+import org.openqa.selenium.Cookie;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.devtools.DevTools;
+
+import java.net.CookieManager;
+import java.net.CookiePolicy;
+import java.net.HttpCookie;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Programmatic Keycloak login for scenarios that do not test login itself (login strategy "token").
+ * Walks the portal's OIDC redirect and the Keycloak login (+ OTP) forms with java.net.http.HttpClient and
+ * hands the issued authorization code to the portal's redirect_uri, so a portal that redeems it server-side
+ * sets its own session cookie. All cookies (Keycloak SSO + portal) then go into the browser before its first
+ * navigation; a portal that redeems codes in JavaScript completes a silent code flow on the SSO cookies.
+ * Strategy per scenario: @tokenLogin / @uiLogin tags, otherwise login.strategy.default (ui|token).
+ * @freshLogin scenarios always use the UI.
+ */
+public final class OidcSessionLogin {
+
+    private static final ConfigManager CONFIG = new ConfigManager();
+    private static final int MAX_REDIRECTS = 10;
+
+    private static final Pattern FORM = Pattern.compile("<form\\b[^>]*>", Pattern.CASE_INSENSITIVE);
+    private static final Pattern ACTION = Pattern.compile("\\baction\\s*=\\s*\"([^\"]+)\"", Pattern.CASE_INSENSITIVE);
+    private static final Pattern OTP_FIELD = Pattern.compile("\\bname\\s*=\\s*\"(code|otp)\"", Pattern.CASE_INSENSITIVE);
+
+    // Prevent instantiation
+    private OidcSessionLogin() {
+        throw new UnsupportedOperationException("Common class");
+    }
+
+    /** True when the scenario should get its session programmatically instead of through the UI. */
+    public static boolean isSelectedFor(Collection<String> scenarioTags) {
+        if (scenarioTags.contains("@freshLogin") || scenarioTags.contains("@uiLogin")) return false;
+        if (scenarioTags.contains("@tokenLogin")) return true;
+        return "token".equalsIgnoreCase(CONFIG.getConfigProps().getProperty("login.strategy.default", "ui").trim());
+    }
+
+    /**
+     * Logs the role in over HTTP and installs the Keycloak session into the current browser.
+     * @return true on success; on failure the caller falls back to the UI login
+     */
+    public static boolean login(String role) {
+        long start = System.nanoTime();
+        try {
+            CookieManager cookies = new CookieManager(null, CookiePolicy.ACCEPT_ALL);
+            HttpClient client = HttpClient.newBuilder()
+                    .cookieHandler(cookies)
+                    .followRedirects(HttpClient.Redirect.NEVER)
+                    .connectTimeout(Duration.ofSeconds(15))
+                    .build();
+
+            // Keycloak authorization endpoint (directly, or via the portal's server-side redirect) -> login form
+            HttpResponse<String> page = follow(client, get(URI.create(startUrl(role))));
+            URI loginForm = formAction(page);
+
+            Map<String, String> credentials = new LinkedHashMap<>();
+            credentials.put("username", BasePage.getUsername(role));
+            credentials.put("password", BasePage.getPassword(role));
+            credentials.put("credentialId", "");
+            // otp.armBeforeSubmit: watch the inbox while Keycloak processes the password; dropped if no OTP form follows
+            boolean totp = TotpGenerator.isSelectedFor(role);
+            Date submitted = new Date(System.currentTimeMillis() / 1000 * 1000);
+            CompletableFuture<String> otp = totp || !armBeforeSubmit() ? null : EmailManager.armOtpWait(role, submitted);
+            HttpResponse<String> afterPassword = null;
+            try {
+                afterPassword = client.send(post(loginForm, credentials), HttpResponse.BodyHandlers.ofString());
+            } finally {
+                if (otp != null && (afterPassword == null || !OTP_FIELD.matcher(afterPassword.body()).find())) otp.cancel(true);
+            }
+
+            HttpResponse<String> last = afterPassword;
+            if (afterPassword.statusCode() == 200) {
+                Matcher otpField = OTP_FIELD.matcher(afterPassword.body());
+                if (!otpField.find()) {
+                    throw new IllegalStateException("Keycloak rejected the credentials (login form shown again)");
+                }
+                String code = totp ? TotpGenerator.codeFor(role)
+                        : EmailManager.awaitOtp(otp != null ? otp : EmailManager.armOtpWait(role, submitted));
+                last = client.send(post(formAction(afterPassword), Map.of(otpField.group(1), code)),
+                        HttpResponse.BodyHandlers.ofString());
+            }
+            String location = last.headers().firstValue("location").orElse("");
+            if (last.statusCode() / 100 != 3 || !location.contains("code=")) {
+                throw new IllegalStateException("No authorization code issued (HTTP " + last.statusCode() + ")");
+            }
+
+            // Redeem the code at the portal's callback; 4xx/5xx (e.g. state kept by a JS client) leaves only SSO cookies
+            HttpResponse<String> callback = follow(client, get(last.uri().resolve(location)));
+            if (callback.statusCode() >= 400) {
+                TestUtils.log().warn("Portal callback for {} returned HTTP {}, relying on the Keycloak session",
+                        role, callback.statusCode());
+            }
+
+            int installed = installInBrowser(cookies.getCookieStore().getCookies(), loginForm);
+            TestUtils.log().info("Token login as {} in {} ms ({} cookie(s) installed, callback HTTP {})",
+                    role, (System.nanoTime() - start) / 1_000_000, installed, callback.statusCode());
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception e) {
+            TestUtils.log().warn("Token login as {} failed, falling back to UI login: {}", role, e.getMessage());
+            return false;
+        }
+    }
+
+    private static boolean armBeforeSubmit() {
+        return Boolean.parseBoolean(CONFIG.getConfigProps().getProperty("otp.armBeforeSubmit", "false").trim());
+    }
+
+    private static HttpResponse<String> follow(HttpClient client, HttpRequest request) throws Exception {
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        for (int i = 0; i < MAX_REDIRECTS && response.statusCode() / 100 == 3; i++) {
+            String location = response.headers().firstValue("location")
+                    .orElseThrow(() -> new IllegalStateException("Redirect without Location"));
+            response = client.send(get(response.uri().resolve(location)), HttpResponse.BodyHandlers.ofString());
+        }
+        return response;
+    }
+
+    /**
+     * Portals that redirect to Keycloak from JavaScript need the authorization URL configured:
+     * login.oidc.authUrl.&lt;role&gt; or login.oidc.authUrl (…/protocol/openid-connect/auth?client_id=…&amp;redirect_uri=…).
+     */
+    private static String startUrl(String role) {
+        Properties props = CONFIG.getConfigProps();
+        String authUrl = props.getProperty("login.oidc.authUrl." + role, props.getProperty("login.oidc.authUrl", "")).trim();
+        return authUrl.isEmpty() ? BasePage.portalUrl(role) : authUrl;
+    }
+
+    /** Action URL of the Keycloak login/OTP form on the page. */
+    private static URI formAction(HttpResponse<String> page) {
+        Matcher form = FORM.matcher(page.body());
+        while (form.find()) {
+            Matcher action = ACTION.matcher(form.group());
+            if (action.find() && action.group(1).contains("login-actions")) {
+                return page.uri().resolve(action.group(1).replace("&amp;", "&"));
+            }
+        }
+        throw new IllegalStateException("No Keycloak login form at " + page.uri()
+                + " (set login.oidc.authUrl if the portal redirects from JavaScript)");
+    }
+
+    private static int installInBrowser(List<HttpCookie> cookies, URI keycloak) {
+        WebDriver driver = DriverManager.getDriver();
+        DevTools devTools = DriverManager.getDevTools();
+        List<Map<String, Object>> params = new ArrayList<>();
+        for (HttpCookie c : cookies) {
+            Map<String, Object> p = new LinkedHashMap<>();
+            p.put("name", c.getName());
+            p.put("value", c.getValue());
+            p.put("domain", c.getDomain() != null ? c.getDomain() : keycloak.getHost());
+            p.put("path", c.getPath() != null ? c.getPath() : "/");
+            p.put("secure", c.getSecure());
+            p.put("httpOnly", c.isHttpOnly());
+            if (c.getMaxAge() > 0) p.put("expires", System.currentTimeMillis() / 1000.0 + c.getMaxAge());
+            params.add(p);
+        }
+        if (devTools != null) {
+            CdpSupport.send(devTools, "Network.setCookies", Map.of("cookies", params));
+            return params.size();
+        }
+        // No CDP (Firefox/Safari): cookies can only be added for the current page's domain, so portal cookies are
+        // left out and the portal signs in again on the Keycloak session
+        driver.navigate().to(keycloak.getScheme() + "://" + keycloak.getAuthority() + "/");
+        int added = 0;
+        for (Map<String, Object> p : params) {
+            String domain = (String) p.get("domain");
+            if (!keycloak.getHost().equalsIgnoreCase(domain) && !HttpCookie.domainMatches(domain, keycloak.getHost())) {
+                continue;
+            }
+            driver.manage().addCookie(new Cookie.Builder((String) p.get("name"), (String) p.get("value"))
+                    .path((String) p.get("path"))
+                    .isSecure((Boolean) p.get("secure"))
+                    .isHttpOnly((Boolean) p.get("httpOnly"))
+                    .build());
+            added++;
+        }
+        return added;
+    }
+
+    private static HttpRequest get(URI uri) {
+        return HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(30)).GET().build();
+    }
+
+    private static HttpRequest post(URI uri, Map<String, String> form) {
+        StringJoiner body = new StringJoiner("&");
+        form.forEach((k, v) -> body.add(URLEncoder.encode(k, StandardCharsets.UTF_8) + "="
+                + URLEncoder.encode(v, StandardCharsets.UTF_8)));
+        return HttpRequest.newBuilder(uri)
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                .build();
+    }
+}
@@ -0,0 +1,98 @@
+package com.qa.common;
+
+import com.qa.utils.TestUtils;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.devtools.DevTools;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Page load measurements for the last navigation of the current thread:
+ * - timings from the W3C Navigation Timing entry (TTFB, DOMContentLoaded, load)
+ * - bytes on the wire summed from CDP Network.loadingFinished (encodedDataLength) across the document
+ *   and all its subresources; cache hits contribute 0 bytes. Chrome/Edge only; -1 elsewhere.
+ */
+public final class PageLoadProbe {
+
+    // DevTools session -> bytes received since the last reset (events arrive on the CDP thread)
+    private static final Map<DevTools, AtomicLong> BYTES = new ConcurrentHashMap<>();
+    private static final ThreadLocal<Snapshot> TL_LAST = new ThreadLocal<>();
+
+    private static final String NAV_TIMING_JS =
+            "const n = performance.getEntriesByType('navigation')[0];"
+                    + "if (!n) return null;"
+                    + "return {url: n.name, ttfb: n.responseStart, dcl: n.domContentLoadedEventEnd,"
+                    + " load: n.loadEventEnd > 0 ? n.loadEventEnd : n.duration, transfer: n.transferSize || 0};";
+
+    // Prevent instantiation
+    private PageLoadProbe() {
+        throw new UnsupportedOperationException("Common class");
+    }
+
+    /**
+     * @param transferredBytes bytes received over the network for document + subresources (CDP), -1 if unknown
+     * @param documentBytes    transferSize of the main document from Navigation Timing
+     */
+    public record Snapshot(String url, double ttfbMs, double domContentLoadedMs, double pageLoadMs,
+                           long transferredBytes, long documentBytes) {}
+
+    /** Starts counting network bytes for a DevTools session (called once per browser). */
+    public static void attach(DevTools devTools) {
+        AtomicLong counter = BYTES.computeIfAbsent(devTools, d -> new AtomicLong());
+        CdpSupport.on(devTools, "Network.loadingFinished",
+                event -> counter.addAndGet((long) CdpSupport.num(event, "encodedDataLength", 0)));
+    }
+
+    public static void detach(DevTools devTools) {
+        if (devTools != null) BYTES.remove(devTools);
+    }
+
+    /**
+     * Zeroes the byte counter of the current browser and forgets this thread's last snapshot (so a failed capture
+     * does not report the previous page); call right before a navigation.
+     */
+    public static void reset() {
+        TL_LAST.remove();
+        AtomicLong counter = counter();
+        if (counter != null) counter.set(0);
+    }
+
+    /** Reads the timings of the current document and remembers them as this thread's last snapshot. */
+    @SuppressWarnings("unchecked")
+    public static Snapshot capture(WebDriver driver) {
+        try {
+            Map<String, Object> nav = (Map<String, Object>) ((JavascriptExecutor) driver).executeScript(NAV_TIMING_JS);
+            if (nav == null) return null;
+            AtomicLong counter = counter();
+            Snapshot snapshot = new Snapshot(
+                    CdpSupport.str(nav, "url"),
+                    CdpSupport.num(nav, "ttfb", -1),
+                    CdpSupport.num(nav, "dcl", -1),
+                    CdpSupport.num(nav, "load", -1),
+                    counter == null ? -1 : counter.get(),
+                    (long) CdpSupport.num(nav, "transfer", 0));
+            TL_LAST.set(snapshot);
+            return snapshot;
+        } catch (Exception e) {
+            TestUtils.log().debug("Page load timings unavailable: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /** Last snapshot captured on this thread (by checkNavigationHealth), or null. */
+    public static Snapshot last() {
+        return TL_LAST.get();
+    }
+
+    public static void clear() {
+        TL_LAST.remove();
+    }
+
+    private static AtomicLong counter() {
+        DevTools devTools = DriverManager.getDevTools();
+        return devTools == null ? null : BYTES.get(devTools);
+    }
+}
@@ -0,0 +1,37 @@
+package com.qa.common;
+
+import com.qa.utils.ConfigManager;
+
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * Per-portal performance budgets from config.properties:
+ * budget.&lt;role&gt;.pageLoadMs / ttfbMs / transferMb, falling back to budget.default.*.
+ * A value of 0 (or missing) disables that budget.
+ */
+public final class PerformanceBudget {
+
+    private static final Properties CONFIG = new ConfigManager().getConfigProps();
+
+    // Prevent instantiation
+    private PerformanceBudget() {
+        throw new UnsupportedOperationException("Common class");
+    }
+
+    public record Budget(String role, long pageLoadMs, long ttfbMs, double transferMb) {}
+
+    public static Budget forRole(String role) {
+        String key = role == null || role.isBlank() ? "default" : role.trim().toLowerCase(Locale.ROOT);
+        return new Budget(key,
+                (long) value(key, "pageLoadMs"),
+                (long) value(key, "ttfbMs"),
+                value(key, "transferMb"));
+    }
+
+    private static double value(String role, String metric) {
+        String v = CONFIG.getProperty("budget." + role + "." + metric);
+        if (v == null || v.isBlank()) v = CONFIG.getProperty("budget.default." + metric, "0");
+        return Double.parseDouble(v.trim());
+    }
+}
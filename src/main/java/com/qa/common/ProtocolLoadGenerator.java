@@ -0,0 +1,180 @@
+package com.qa.common;
+
+import com.qa.utils.LatencyStats;
+import com.qa.utils.TestUtils;
+
+import java.net.CookieManager;
+import java.net.CookiePolicy;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Open-model protocol-level load generator: starts script iterations (virtual users) at a target rate,
+ * each on its own virtual thread with its own cookie jar and correlation state, and drives the
+ * ProtocolScript through one shared java.net.http.HttpClient (shared connection pool, per-user cookies).
+ * Redirects are not followed automatically because every recorded hop is a script step of its own.
+ * A step fails when its status class differs from the recorded one (e.g. a recorded 302 answered with 200:
+ * Keycloak re-renders the login page on bad credentials), so a broken login never counts as an iteration.
+ * Each iteration takes the next entry of {@code credentials} (round robin) for the fields the recording redacted.
+ */
+public final class ProtocolLoadGenerator {
+
+    private final ProtocolScript script;
+    private final Duration requestTimeout;
+    private final List<Map<String, String>> credentials;
+    private final AtomicLong nextUser = new AtomicLong();
+
+    private final Map<String, LatencyStats> stepStats = new ConcurrentHashMap<>();
+    private final LatencyStats iterationStats = new LatencyStats("Script iteration (total)");
+    private final LatencyStats allRequests = new LatencyStats("All requests");
+    private final AtomicLong droppedStarts = new AtomicLong();
+
+    public ProtocolLoadGenerator(ProtocolScript script, Duration requestTimeout, List<Map<String, String>> credentials) {
+        this.script = script;
+        this.requestTimeout = requestTimeout;
+        this.credentials = List.copyOf(credentials);
+        for (ProtocolScript.Step step : script.steps()) {
+            stepStats.computeIfAbsent(step.label(), LatencyStats::new);
+        }
+    }
+
+    /** Outcome of one load run. */
+    public record Result(long elapsedMs, long iterationsStarted, long droppedStarts,
+                         LatencyStats iterations, LatencyStats requests, Map<String, LatencyStats> perStep) {
+        public double iterationsPerSec() {
+            return iterations.count() * 1000.0 / Math.max(1, elapsedMs);
+        }
+
+        public double requestsPerSec() {
+            return requests.count() * 1000.0 / Math.max(1, elapsedMs);
+        }
+    }
+
+    /**
+     * @param ratePerSec  iterations started per second
+     * @param duration    how long new iterations are started
+     * @param maxInFlight cap on concurrently running iterations; starts beyond it are dropped and counted
+     */
+    public Result run(double ratePerSec, Duration duration, int maxInFlight) throws InterruptedException {
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        long intervalNanos = (long) (1_000_000_000L / Math.max(0.001, ratePerSec));
+        long started = System.nanoTime();
+        long endAt = started + duration.toNanos();
+        long iterationsStarted = 0;
+
+        // Closed in reverse order: users first (waits for running iterations), then the client and its executor.
+        // The client gets its own executor: a shut down one would reject the I/O of iterations still running.
+        try (ExecutorService clientExecutor = Executors.newVirtualThreadPerTaskExecutor();
+             HttpClient client = HttpClient.newBuilder()
+                     .executor(clientExecutor)
+                     .followRedirects(HttpClient.Redirect.NEVER)
+                     .connectTimeout(requestTimeout)
+                     .build();
+             ExecutorService users = Executors.newVirtualThreadPerTaskExecutor()) {
+            long next = started;
+            while (next < endAt) {
+                long wait = next - System.nanoTime();
+                if (wait > 0) TimeUnit.NANOSECONDS.sleep(wait);
+                if (inFlight.tryAcquire()) {
+                    iterationsStarted++;
+                    users.submit(() -> {
+                        try {
+                            runIteration(client);
+                        } finally {
+                            inFlight.release();
+                        }
+                    });
+                } else {
+                    droppedStarts.incrementAndGet();
+                }
+                next += intervalNanos;
+            }
+            TestUtils.log().info("Protocol load: all {} iteration(s) started, waiting for in-flight ones...", iterationsStarted);
+        }
+
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        Map<String, LatencyStats> perStep = new LinkedHashMap<>();
+        script.steps().forEach(s -> perStep.putIfAbsent(s.label(), stepStats.get(s.label())));
+        return new Result(elapsedMs, iterationsStarted, droppedStarts.get(), iterationStats, allRequests, perStep);
+    }
+
+    private void runIteration(HttpClient client) {
+        CookieManager cookies = new CookieManager(null, CookiePolicy.ACCEPT_ALL);
+        ProtocolScript.Correlation correlation = new ProtocolScript.Correlation(credentials.isEmpty()
+                ? Map.of()
+                : credentials.get((int) (nextUser.getAndIncrement() % credentials.size())));
+
+        long iterationStart = System.nanoTime();
+        for (ProtocolScript.Step step : script.steps()) {
+            LatencyStats stats = stepStats.get(step.label());
+            String failure = execute(client, cookies, correlation, step, stats);
+            if (failure != null) {
+                iterationStats.recordError(step.label() + " -> " + failure);
+                return;
+            }
+        }
+        iterationStats.recordNanos(System.nanoTime() - iterationStart);
+    }
+
+    /** Sends one step; returns null on success or a short error reason. */
+    private String execute(HttpClient client, CookieManager cookies, ProtocolScript.Correlation correlation,
+                           ProtocolScript.Step step, LatencyStats stats) {
+        try {
+            Map<String, String> headers = script.resolveHeaders(correlation, step.headers());
+            String body = script.resolveBody(correlation, step.body(), headers);
+            URI uri = URI.create(script.resolveUrl(correlation, step.url()));
+            HttpRequest.Builder request = HttpRequest.newBuilder(uri)
+                    .timeout(requestTimeout)
+                    .method(step.method(), body == null
+                            ? HttpRequest.BodyPublishers.noBody()
+                            : HttpRequest.BodyPublishers.ofString(body));
+            headers.forEach((name, value) -> {
+                try {
+                    request.header(name, value);
+                } catch (IllegalArgumentException restricted) {
+                    // header managed by HttpClient
+                }
+            });
+            cookies.get(uri, Map.of()).forEach((name, values) -> values.forEach(v -> request.header(name, v)));
+
+            long t0 = System.nanoTime();
+            HttpResponse<String> response = client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+            long took = System.nanoTime() - t0;
+
+            cookies.put(uri, response.headers().map());
+            script.capture(correlation, response.headers().firstValue("location").orElse(null), response.body());
+
+            int status = response.statusCode();
+            if (statusClass(status) != statusClass(step.recordedStatus())) {
+                String reason = "HTTP " + status + " (recorded " + step.recordedStatus() + ")";
+                stats.recordError(reason);
+                allRequests.recordError(reason);
+                return reason;
+            }
+            stats.recordNanos(took);
+            allRequests.recordNanos(took);
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "interrupted";
+        } catch (Exception e) {
+            String reason = e.getClass().getSimpleName();
+            stats.recordError(reason);
+            allRequests.recordError(reason);
+            return reason;
+        }
+    }
+
+    /** 2xx and 304 (served from a recorded validator) count as the same outcome. */
+    private static int statusClass(int status) {
+        return status == 304 ? 2 : status / 100;
+    }
+}
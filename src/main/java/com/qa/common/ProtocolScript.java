@@ -0,0 +1,186 @@
+package com.qa.common;
+
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Replayable HTTP request script built from a NetworkArchive recording (network.mode=record).
+ * Only the request types that carry the flow (document/XHR/fetch by default) are kept; static assets are dropped.
+ * Dynamic values are correlated per virtual user at replay time:
+ * - cookies (e.g. Keycloak AUTH_SESSION_ID/KEYCLOAK_SESSION) come from the user's own cookie jar
+ * - query/form params listed in {@code correlatedParams} (Keycloak code, session_code, execution, tab_id, ...)
+ *   are captured from Location headers and response bodies and substituted into later requests
+ * - "access_token" from token responses replaces the recorded Authorization value (Bearer or REDACTED);
+ *   a REDACTED Authorization header is dropped until a token was captured
+ * - form/JSON fields the recording redacted (NetworkArchive.REDACTED, e.g. username/password) are filled
+ *   from the virtual user's credentials
+ */
+public final class ProtocolScript {
+
+    // Headers HttpClient manages itself (or forbids) and recorded cookies (the user's jar supplies them)
+    private static final Set<String> SKIPPED_HEADERS = Set.of(
+            "host", "connection", "content-length", "expect", "upgrade", "cookie", "keep-alive",
+            "transfer-encoding", "te", "trailer", "proxy-connection", "http2-settings");
+
+    private static final Pattern ACCESS_TOKEN = Pattern.compile("\"access_token\"\\s*:\\s*\"([^\"]+)\"");
+
+    private final List<Step> steps;
+    private final Set<String> correlatedParams;
+
+    /** One request of the script with what was observed while recording. */
+    public record Step(String label, String method, String url, Map<String, String> headers,
+                       String body, int recordedStatus) {}
+
+    private ProtocolScript(List<Step> steps, Set<String> correlatedParams) {
+        this.steps = List.copyOf(steps);
+        this.correlatedParams = Set.copyOf(correlatedParams);
+    }
+
+    public List<Step> steps() {
+        return steps;
+    }
+
+    /** Script from explicit steps (e.g. a hand-written fixture for a stub server). */
+    public static ProtocolScript of(List<Step> steps, Set<String> correlatedParams) {
+        return new ProtocolScript(steps, correlatedParams);
+    }
+
+    /**
+     * @param resourceTypes CDP resource types to keep (e.g. Document, XHR, Fetch)
+     * @param targetOrigin  optional scheme://host[:port] that replaces every recorded origin (e.g. a local stub)
+     */
+    public static ProtocolScript fromArchive(Path archive, Set<String> resourceTypes,
+                                             Set<String> correlatedParams, String targetOrigin) {
+        return fromExchanges(NetworkArchive.load(archive), resourceTypes, correlatedParams, targetOrigin);
+    }
+
+    /** Script from exchanges as NetworkArchive archives them (i.e. after {@link NetworkArchive#redact}). */
+    public static ProtocolScript fromExchanges(List<NetworkArchive.Exchange> exchanges, Set<String> resourceTypes,
+                                               Set<String> correlatedParams, String targetOrigin) {
+        Set<String> types = new HashSet<>();
+        resourceTypes.forEach(t -> types.add(t.toLowerCase(Locale.ROOT)));
+
+        List<Step> steps = new ArrayList<>();
+        for (NetworkArchive.Exchange e : exchanges) {
+            if (e.resourceType() != null && !types.contains(e.resourceType().toLowerCase(Locale.ROOT))) continue;
+
+            Map<String, String> headers = new LinkedHashMap<>();
+            e.requestHeaders().forEach((name, value) -> {
+                String lower = name.toLowerCase(Locale.ROOT);
+                if (!lower.startsWith(":") && !SKIPPED_HEADERS.contains(lower)) headers.put(name, value);
+            });
+
+            String url = retarget(e.url(), targetOrigin);
+            URI uri = URI.create(url);
+            String label = e.method() + " " + uri.getRawPath();
+            steps.add(new Step(label, e.method(), url, headers, e.postData(), e.status()));
+        }
+        return new ProtocolScript(steps, correlatedParams);
+    }
+
+    /** Per virtual-user correlation state and the credentials that fill redacted fields. */
+    public static final class Correlation {
+        private final Map<String, String> values = new HashMap<>();
+        private final Map<String, String> credentials;
+
+        public Correlation(Map<String, String> credentials) {
+            this.credentials = Map.copyOf(credentials);
+        }
+
+        public Map<String, String> values() {
+            return values;
+        }
+    }
+
+    /** Captures correlated params and tokens from a response (Location header + body). */
+    public void capture(Correlation c, String location, String body) {
+        if (location != null) captureParams(c, location);
+        if (body != null && !body.isEmpty()) {
+            captureParams(c, body.replace("&amp;", "&"));
+            Matcher m = ACCESS_TOKEN.matcher(body);
+            if (m.find()) c.values.put("access_token", m.group(1));
+        }
+    }
+
+    /** Recorded URL with correlated query params replaced by the user's live values. */
+    public String resolveUrl(Correlation c, String url) {
+        int q = url.indexOf('?');
+        if (q < 0 || c.values.isEmpty()) return url;
+        return url.substring(0, q + 1) + substituteParams(c, url.substring(q + 1));
+    }
+
+    /**
+     * Form-encoded bodies get correlated params and redacted credentials substituted, JSON bodies redacted
+     * credentials; other bodies are sent as recorded.
+     */
+    public String resolveBody(Correlation c, String body, Map<String, String> headers) {
+        if (body == null) return body;
+        String contentType = headers.entrySet().stream()
+                .filter(h -> h.getKey().equalsIgnoreCase("content-type"))
+                .map(Map.Entry::getValue).findFirst().orElse("");
+        if (contentType.contains("application/x-www-form-urlencoded")) return substituteParams(c, body);
+        if (!contentType.contains("json")) return body;
+        String out = body;
+        for (Map.Entry<String, String> credential : c.credentials.entrySet()) {
+            out = out.replaceAll("(\"" + Pattern.quote(credential.getKey()) + "\"\\s*:\\s*)\"" + NetworkArchive.REDACTED + "\"",
+                    "$1" + Matcher.quoteReplacement("\"" + jsonEscape(credential.getValue()) + "\""));
+        }
+        return out;
+    }
+
+    /**
+     * Recorded headers with the Authorization value (Bearer or REDACTED) replaced by the user's live token;
+     * a redacted one is dropped while no token has been captured.
+     */
+    public Map<String, String> resolveHeaders(Correlation c, Map<String, String> headers) {
+        String token = c.values.get("access_token");
+        Map<String, String> out = new LinkedHashMap<>(headers);
+        out.entrySet().removeIf(h -> token == null && h.getKey().equalsIgnoreCase("authorization")
+                && h.getValue().equals(NetworkArchive.REDACTED));
+        if (token == null) return out;
+        out.replaceAll((name, value) -> name.equalsIgnoreCase("authorization")
+                && (value.startsWith("Bearer ") || value.equals(NetworkArchive.REDACTED)) ? "Bearer " + token : value);
+        return out;
+    }
+
+    private void captureParams(Correlation c, String text) {
+        for (String name : correlatedParams) {
+            Matcher m = Pattern.compile("[?&#;]" + Pattern.quote(name) + "=([^&\"'#\\s<>]+)").matcher(text);
+            if (m.find()) {
+                c.values.put(name, URLDecoder.decode(m.group(1), StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    private String substituteParams(Correlation c, String query) {
+        StringJoiner out = new StringJoiner("&");
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            String name = eq < 0 ? pair : pair.substring(0, eq);
+            String live = correlatedParams.contains(name) ? c.values.get(name) : null;
+            if (live == null && eq >= 0 && pair.substring(eq + 1).equals(NetworkArchive.REDACTED)) {
+                live = c.credentials.get(name);
+            }
+            out.add(live == null ? pair : name + "=" + URLEncoder.encode(live, StandardCharsets.UTF_8));
+        }
+        return out.toString();
+    }
+
+    private static String jsonEscape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    private static String retarget(String url, String targetOrigin) {
+        if (targetOrigin == null || targetOrigin.isBlank()) return url;
+        URI uri = URI.create(url);
+        String rest = Objects.toString(uri.getRawPath(), "")
+                + (uri.getRawQuery() == null ? "" : "?" + uri.getRawQuery());
+        return targetOrigin.replaceAll("/+$", "") + rest;
+    }
+}
@@ -1,10 +1,16 @@
 package com.qa.common;
 
 public class SessionManager {
-    private static String currentRole = "";
-    private static boolean reLoginNeeded = false;
-    private static boolean isFirstScenario = true;
-    private static boolean isAlreadyLoggedOut = false;
+
+    // Login state of the browser owned by the current worker thread (parallel mode runs one per thread)
+    private static final class State {
+        private String currentRole = "";
+        private boolean reLoginNeeded = false;
+        private boolean isFirstScenario = true;
+        private boolean isAlreadyLoggedOut = false;
+    }
+
+    private static final ThreadLocal<State> STATE = ThreadLocal.withInitial(State::new);
 
 
     private SessionManager() {
@@ -12,57 +18,72 @@ public class SessionManager {
     }
 
 
+    /** Role a scenario runs as, derived from its name (e.g. "Verify if trainer is able to ..." -> trainer). */
+    public static String roleFromScenarioName(String name) {
+        name = name.toLowerCase();
+        if (name.contains("admin")) return "admin";
+        if (name.contains("trainer")) return "trainer";
+        if (name.contains("beneficiary")) return "beneficiary";
+        if (name.contains("superadmin") || name.contains("super admin")) return "superadmin";
+        if (name.contains("contentmanager") || name.contains("content manager")) return "contentmanager";
+        if (name.contains("complianceofficer") || name.contains("compliance officer")) return "complianceofficer";
+        if (name.contains("traininggency") || name.contains("training agency")) return "traininggency";
+
+        return "default";
+    }
+
+
     public static String getCurrentRole() {
-        return currentRole;
+        return STATE.get().currentRole;
     }
 
 
     public static void setCurrentRole(String role) {
-        currentRole = role;
+        STATE.get().currentRole = role;
     }
 
 
     public static boolean isRoleSwitch(String newRole) {
-        return !currentRole.equalsIgnoreCase(newRole);
+        return !STATE.get().currentRole.equalsIgnoreCase(newRole);
     }
 
 
     public static void markReLoginNeeded() {
-        reLoginNeeded = true;
+        STATE.get().reLoginNeeded = true;
     }
 
 
     public static boolean shouldReLogin() {
-        return reLoginNeeded;
+        return STATE.get().reLoginNeeded;
     }
 
 
     public static void resetReLoginFlag() {
-        reLoginNeeded = false;
+        STATE.get().reLoginNeeded = false;
     }
 
 
     public static boolean isFirstScenario() {
-        return isFirstScenario;
+        return STATE.get().isFirstScenario;
     }
 
 
     public static void markFirstScenarioCompleted() {
-        isFirstScenario = false;
+        STATE.get().isFirstScenario = false;
     }
 
 
     public static boolean isAlreadyLoggedOut() {
-        return isAlreadyLoggedOut;
+        return STATE.get().isAlreadyLoggedOut;
     }
 
 
     public static void markLoggedOut() {
-        isAlreadyLoggedOut = true;
+        STATE.get().isAlreadyLoggedOut = true;
     }
 
 
     public static void resetLoggedOutFlag() {
-        isAlreadyLoggedOut = false;
+        STATE.get().isAlreadyLoggedOut = false;
     }
 }
@@ -0,0 +1,97 @@
+package com.qa.common;
+
+import com.qa.utils.ConfigManager;
+import com.qa.utils.TestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Role-keyed pool of logged-in browsers (sessionPool.enabled=true).
+ * On a role switch the outgoing role's browser is parked (still logged in) instead of being logged out,
+ * and the incoming role resumes its own parked browser if it has one. A role then logs in once per run;
+ * it logs in again only after its session is invalidated by a failed scenario or has been idle longer
+ * than sessionPool.maxIdleMin (the server-side session may have expired).
+ */
+public final class SessionPool {
+
+    private static final ConfigManager CONFIG = new ConfigManager();
+
+    // role -> parked logged-in browser
+    private static final Map<String, Parked> IDLE = new ConcurrentHashMap<>();
+
+    private record Parked(DriverManager.BrowserSession session, long parkedAtMs) {}
+
+    // Prevent instantiation
+    private SessionPool() {
+        throw new UnsupportedOperationException("Common class");
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.parseBoolean(CONFIG.getConfigProps().getProperty("sessionPool.enabled", "false").trim());
+    }
+
+    /**
+     * Detaches the current thread's browser. A still logged-in browser is parked for its role;
+     * an invalidated one is quit.
+     */
+    public static void park(String role, boolean loggedIn) {
+        DriverManager.BrowserSession session = DriverManager.detachSession();
+        if (session == null) return;
+        if (!loggedIn || role == null || role.isBlank()) {
+            quit(session);
+            return;
+        }
+        Parked previous = IDLE.put(role, new Parked(session, System.currentTimeMillis()));
+        if (previous != null) quit(previous.session());
+        TestUtils.log().info("Session pool: parked logged-in browser for role '{}'", role);
+    }
+
+    /**
+     * Attaches the parked browser of a role to the current thread.
+     * @return true if a usable logged-in session was resumed, false if the caller has to log in
+     */
+    public static boolean lease(String role) {
+        Parked parked = IDLE.remove(role);
+        if (parked == null) return false;
+
+        long idleMin = TimeUnit.MILLISECONDS.toMinutes(System.currentTimeMillis() - parked.parkedAtMs());
+        long maxIdleMin = Long.parseLong(CONFIG.getConfigProps().getProperty("sessionPool.maxIdleMin", "20").trim());
+        if (idleMin >= maxIdleMin) {
+            TestUtils.log().info("Session pool: session for role '{}' idle {} min (max {}), logging in again",
+                    role, idleMin, maxIdleMin);
+            quit(parked.session());
+            return false;
+        }
+        try {
+            parked.session().driver().getCurrentUrl(); // browser still alive?
+        } catch (Exception e) {
+            TestUtils.log().warn("Session pool: browser for role '{}' is gone: {}", role, e.getMessage());
+            quit(parked.session());
+            return false;
+        }
+        DriverManager.attachSession(parked.session());
+        TestUtils.log().info("Session pool: resumed logged-in browser for role '{}'", role);
+        return true;
+    }
+
+    /** Quits every parked browser (end of run). */
+    public static void quitAll() {
+        List<String> roles = new ArrayList<>(IDLE.keySet());
+        for (String role : roles) {
+            Parked parked = IDLE.remove(role);
+            if (parked != null) quit(parked.session());
+        }
+    }
+
+    private static void quit(DriverManager.BrowserSession session) {
+        // Route through quitDriver so DevTools listeners, cache slot and archives are cleaned up too
+        DriverManager.BrowserSession current = DriverManager.detachSession();
+        DriverManager.attachSession(session);
+        DriverManager.quitDriver();
+        if (current != null) DriverManager.attachSession(current);
+    }
+}
@@ -0,0 +1,178 @@
+package com.qa.common;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.qa.utils.ConfigManager;
+import com.qa.utils.SecureConfig;
+import com.qa.utils.TestUtils;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.devtools.DevTools;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encrypted on-disk snapshots of a role's authenticated browser state, reused across cron runs
+ * (sessionSnapshot.enabled=true). Chrome/Edge only: needs CDP for cross-domain (Keycloak) cookies.
+ * - saved after a successful login: all cookies + localStorage/sessionStorage of the portal origin,
+ *   AES-GCM encrypted with the .env.sec value key into sessionSnapshot.dir/&lt;role&gt;.snap
+ * - restored before logging in: cookies via Network.setCookies, storage seeded by a script that runs
+ *   before the portal's own scripts; the caller then probes the portal and falls back to a full login
+ * - snapshots older than sessionSnapshot.ttlMin are ignored; scenarios tagged @freshLogin never restore
+ */
+public final class SessionSnapshots {
+
+    private static final ConfigManager CONFIG = new ConfigManager();
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String FRESH_LOGIN_TAG = "@freshLogin";
+
+    // Fields Network.setCookies accepts (getAllCookies returns more)
+    private static final List<String> COOKIE_FIELDS =
+            List.of("name", "value", "domain", "path", "secure", "httpOnly", "sameSite", "expires");
+
+    private static final String READ_STORAGE_JS =
+            "const dump = s => { const o = {}; for (let i = 0; i < s.length; i++) { const k = s.key(i); o[k] = s.getItem(k); } return o; };"
+                    + "return {origin: location.origin, local: dump(localStorage), session: dump(sessionStorage)};";
+
+    private static final ThreadLocal<Boolean> TL_FRESH_LOGIN = ThreadLocal.withInitial(() -> false);
+    private static final ThreadLocal<String> TL_SEED_SCRIPT = new ThreadLocal<>();
+
+    // Prevent instantiation
+    private SessionSnapshots() {
+        throw new UnsupportedOperationException("Common class");
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.parseBoolean(CONFIG.getConfigProps().getProperty("sessionSnapshot.enabled", "false").trim());
+    }
+
+    /** Scenario tagged @freshLogin must go through the real login (set per scenario from hooks). */
+    public static void forScenario(Collection<String> scenarioTags) {
+        TL_FRESH_LOGIN.set(scenarioTags.contains(FRESH_LOGIN_TAG));
+    }
+
+    public static boolean isFreshLoginRequired() {
+        return TL_FRESH_LOGIN.get();
+    }
+
+    /** Saves the current browser's authenticated state for a role (call while on the logged-in portal). */
+    @SuppressWarnings("unchecked")
+    public static void save(String role, WebDriver driver) {
+        DevTools devTools = DriverManager.getDevTools();
+        if (!isEnabled() || devTools == null || role == null || role.isBlank()) return;
+        try {
+            Map<String, Object> cookies = CdpSupport.send(devTools, "Network.getAllCookies", Map.of());
+            Map<String, Object> storage = (Map<String, Object>) ((JavascriptExecutor) driver).executeScript(READ_STORAGE_JS);
+
+            Map<String, Object> snapshot = new LinkedHashMap<>();
+            snapshot.put("savedAt", System.currentTimeMillis());
+            snapshot.put("cookies", cookies.getOrDefault("cookies", List.of()));
+            snapshot.put("storage", storage);
+
+            Path file = file(role);
+            Files.createDirectories(file.getParent());
+            Files.writeString(file, SecureConfig.get().encrypt(MAPPER.writeValueAsString(snapshot)), StandardCharsets.UTF_8);
+            TestUtils.log().info("Session snapshot saved for role '{}'", role);
+        } catch (Exception e) {
+            TestUtils.log().warn("Session snapshot for role '{}' not saved: {}", role, e.getMessage());
+        }
+    }
+
+    /**
+     * Loads a role's snapshot into the current browser (before navigating to the portal).
+     * @return true if state was restored and the caller should probe whether the session is still valid
+     */
+    @SuppressWarnings("unchecked")
+    public static boolean restore(String role) {
+        DevTools devTools = DriverManager.getDevTools();
+        if (!isEnabled() || isFreshLoginRequired() || devTools == null) return false;
+        Path file = file(role);
+        if (!Files.exists(file)) return false;
+        try {
+            Map<String, Object> snapshot = MAPPER.readValue(
+                    SecureConfig.get().decrypt(Files.readString(file, StandardCharsets.UTF_8)),
+                    new TypeReference<Map<String, Object>>() {});
+
+            long ageMin = TimeUnit.MILLISECONDS.toMinutes(
+                    System.currentTimeMillis() - ((Number) snapshot.get("savedAt")).longValue());
+            long ttlMin = Long.parseLong(CONFIG.getConfigProps().getProperty("sessionSnapshot.ttlMin", "30").trim());
+            if (ageMin >= ttlMin) {
+                TestUtils.log().info("Session snapshot for role '{}' is {} min old (ttl {}), ignoring", role, ageMin, ttlMin);
+                discard(role);
+                return false;
+            }
+
+            List<Map<String, Object>> cookies = new ArrayList<>();
+            for (Map<String, Object> c : (List<Map<String, Object>>) snapshot.get("cookies")) {
+                Map<String, Object> param = new LinkedHashMap<>();
+                COOKIE_FIELDS.forEach(f -> { if (c.get(f) != null) param.put(f, c.get(f)); });
+                if (Boolean.TRUE.equals(c.get("session"))) param.remove("expires");
+                cookies.add(param);
+            }
+            CdpSupport.send(devTools, "Network.setCookies", Map.of("cookies", cookies));
+
+            Map<String, Object> storage = (Map<String, Object>) snapshot.get("storage");
+            if (storage != null) seedStorage(devTools, storage);
+
+            TestUtils.log().info("Session snapshot restored for role '{}' ({} min old, {} cookie(s))", role, ageMin, cookies.size());
+            return true;
+        } catch (Exception e) {
+            TestUtils.log().warn("Session snapshot for role '{}' unusable: {}", role, e.getMessage());
+            discard(role);
+            return false;
+        }
+    }
+
+    /** Drops a role's snapshot (failed probe, expired or unreadable) and the cookies it may have set. */
+    public static void discard(String role) {
+        try {
+            Files.deleteIfExists(file(role));
+        } catch (Exception ignore) { }
+        DevTools devTools = DriverManager.getDevTools();
+        if (devTools != null) {
+            try {
+                CdpSupport.send(devTools, "Network.clearBrowserCookies", Map.of());
+            } catch (Exception ignore) { }
+        }
+    }
+
+    /** Registers a one-shot script that fills local/session storage on the portal origin before its own scripts run. */
+    private static void seedStorage(DevTools devTools, Map<String, Object> storage) throws Exception {
+        String origin = String.valueOf(storage.get("origin"));
+        if (origin.isBlank() || "null".equals(origin)) return;
+        String script = "(() => {"
+                + "if (location.origin !== " + MAPPER.writeValueAsString(origin) + ") return;"
+                + "if (sessionStorage.getItem('__snapshotRestored')) return;"
+                + "const fill = (s, o) => Object.entries(o || {}).forEach(([k, v]) => s.setItem(k, v));"
+                + "fill(localStorage, " + MAPPER.writeValueAsString(storage.get("local")) + ");"
+                + "fill(sessionStorage, " + MAPPER.writeValueAsString(storage.get("session")) + ");"
+                + "sessionStorage.setItem('__snapshotRestored', '1');"
+                + "})();";
+        CdpSupport.send(devTools, "Page.enable", Map.of());
+        Map<String, Object> added = CdpSupport.send(devTools, "Page.addScriptToEvaluateOnNewDocument", Map.of("source", script));
+        TL_SEED_SCRIPT.set(CdpSupport.str(added, "identifier"));
+        TestUtils.log().debug("Storage seeding armed for {}", URI.create(origin).getHost());
+    }
+
+    /** Removes the storage seeding script once the restored session has been probed. */
+    public static void endRestore() {
+        String identifier = TL_SEED_SCRIPT.get();
+        TL_SEED_SCRIPT.remove();
+        DevTools devTools = DriverManager.getDevTools();
+        if (identifier == null || devTools == null) return;
+        try {
+            CdpSupport.send(devTools, "Page.removeScriptToEvaluateOnNewDocument", Map.of("identifier", identifier));
+        } catch (Exception ignore) { }
+    }
+
+    private static Path file(String role) {
+        String dir = CONFIG.getConfigProps().getProperty("sessionSnapshot.dir", ".cache/sessions");
+        return Paths.get(dir, role.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9_-]", "_") + ".snap");
+    }
+}
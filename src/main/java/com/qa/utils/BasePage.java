@@ -18,6 +18,13 @@ public class BasePage {
     }
 
     public void navigate(String role) {
+        DriverManager.checkNavigationHealth(portalUrl(role));
+    }
+
+    /**
+     * Builds the portal URL (admin, trainer or beneficiary) for the given role.
+     */
+    public static String portalUrl(String role) {
         String url =SecureConfig.value(SecKeys.AMFIAPPLICATIONBASEURL);
         if (role.contains("beneficiary")) {
             url = url +SecureConfig.value(SecKeys.BENEFICIARYPORTAL);
@@ -26,7 +33,7 @@ public class BasePage {
         } else {
             url = url + SecureConfig.value(SecKeys.ADMINPORTAL);
         }
-        DriverManager.checkNavigationHealth(url);
+        return url;
     }
 
     public void click(WebElement element, String msg) {
@@ -47,7 +54,7 @@ public class BasePage {
         TestUtils.log().info(msg);
     }
 
-    public String getUsername(String role) {
+    public static String getUsername(String role) {
         if (role.contains("beneficiary")) {
             return "";
         } else if (role.contains("trainer")) {
@@ -63,7 +70,7 @@ public class BasePage {
         }
     }
 
-    public String getPassword(String role) {
+    public static String getPassword(String role) {
         if (role.contains("beneficiary")) {
             return "";
         } else if (role.contains("trainer")) {
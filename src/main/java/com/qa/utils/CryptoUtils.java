@@ -16,17 +16,39 @@ public final class CryptoUtils {
     private static final int GCM_TAG_BITS = 128;
     private static final int GCM_IV_LEN = 12;
     private static final SecureRandom RNG = new SecureRandom();
+    private static final String BASE32 = "ABCDEFGHIJKLMNOPQRSTUVWXYZ234567";
 
     private CryptoUtils() {}
 
     // Minimal HKDF-SHA256
-    private static byte[] hmac(byte[] key, byte[] data) {
+    private static byte[] hmac(byte[] key, byte[] data) { return hmac(HMAC_ALGO, key, data); }
+
+    /** HMAC with the given JCA algorithm (HmacSHA1/HmacSHA256/HmacSHA512), e.g. for TOTP. */
+    public static byte[] hmac(String algorithm, byte[] key, byte[] data) {
         try {
-            Mac mac = Mac.getInstance(HMAC_ALGO);
-            mac.init(new SecretKeySpec(key, HMAC_ALGO));
+            Mac mac = Mac.getInstance(algorithm);
+            mac.init(new SecretKeySpec(key, algorithm));
             return mac.doFinal(data);
         } catch (Exception e) { throw new RuntimeException(e); }
     }
+
+    /** RFC 4648 Base32 (authenticator seeds); case, spaces and padding are ignored. */
+    public static byte[] base32Decode(String b32) {
+        String s = b32.replaceAll("[\\s=-]", "").toUpperCase(java.util.Locale.ROOT);
+        ByteBuffer out = ByteBuffer.allocate(s.length() * 5 / 8);
+        int buffer = 0, bits = 0;
+        for (char ch : s.toCharArray()) {
+            int v = BASE32.indexOf(ch);
+            if (v < 0) throw new IllegalArgumentException("Invalid Base32 character: " + ch);
+            buffer = (buffer << 5) | v;
+            bits += 5;
+            if (bits >= 8) {
+                out.put((byte) (buffer >> (bits - 8)));
+                bits -= 8;
+            }
+        }
+        return out.array();
+    }
     public static byte[] hkdfExtract(byte[] salt, byte[] ikm) { return hmac(salt, ikm); }
     public static byte[] hkdfExpand(byte[] prk, byte[] info, int len) {
         byte[] t = new byte[0];
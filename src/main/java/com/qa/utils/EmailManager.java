@@ -6,25 +6,32 @@ import jakarta.activation.DataSource;
 import jakarta.activation.FileDataSource;
 import jakarta.mail.*;
 import jakarta.mail.internet.*;
+import jakarta.mail.search.*;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.time.LocalTime;
+import java.time.ZoneId;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Stream;
 
 public class EmailManager {
 
-    // ---- Config keys (avoid magic strings) ----
-    private static final String KEY_MAIL_USERNAME   = SecureConfig.value(SecKeys.MAIL_USERNAME);
-    private static final String KEY_MAIL_PASSWORD   = SecureConfig.value(SecKeys.MAIL_PASSWORD);
-    private static final String KEY_MAIL_PROVIDER   = SecureConfig.value(SecKeys.MAIL_PROVIDER);
-    private static final String KEY_MAIL_TO         = SecureConfig.value(SecKeys.MAIL_TO);
-    private static final String KEY_MAIL_CC         = SecureConfig.value(SecKeys.EMAIL_CC);      // kept as in your code
-    private static final String KEY_OTP_SUBJECT     = SecureConfig.value(SecKeys.OTP_SUBJECT);
-    private static final String KEY_OTP_SENDER      = SecureConfig.value(SecKeys.OTP_SENDEREMAIL);
+    // ---- Config keys (avoid magic strings); each can be overridden by the email.* system property ----
+    private static final String KEY_MAIL_USERNAME   = setting("email.username", SecKeys.MAIL_USERNAME);
+    private static final String KEY_MAIL_PASSWORD   = setting("email.password", SecKeys.MAIL_PASSWORD);
+    private static final String KEY_MAIL_PROVIDER   = setting("email.provider", SecKeys.MAIL_PROVIDER);
+    private static final String KEY_MAIL_TO         = setting("email.to", SecKeys.MAIL_TO);
+    private static final String KEY_MAIL_CC         = setting("email.cc", SecKeys.EMAIL_CC);      // kept as in your code
+    private static final String KEY_OTP_SUBJECT     = setting("email.otp.subject", SecKeys.OTP_SUBJECT);
+    private static final String KEY_OTP_SENDER      = setting("email.otp.sender", SecKeys.OTP_SENDEREMAIL);
     private static final String KEY_OTP_TAIL_WINDOW = "60";
+    private static final String KEY_OTP_LENGTH      = setting("email.otp.length", SecKeys.OTP_LENGTH);         // optional
+    private static final String KEY_OTP_PREFERLAST  = setting("email.otp.preferLast", SecKeys.OTP_PREFERLAST); // optional
 
     // ---- Providers / SMTP ----
     private static final String PROVIDER_GMAIL    = "gmail";
@@ -40,11 +47,22 @@ public class EmailManager {
     private static final String PROP_STORE_PROTOCOL   = "mail.store.protocol";
     private static final String PROP_IMAPS_SSL_ENABLE = "mail.imaps.ssl.enable";
 
+    // ---- Endpoints: Gmail unless overridden (e.g. the embedded mail server of run.mode=mailbench) ----
+    private static final String  IMAP_HOST = System.getProperty("email.imap.host", IMAP_HOST_GMAIL);
+    private static final int     IMAP_PORT = Integer.getInteger("email.imap.port", IMAP_PORT_SSL);
+    private static final boolean IMAP_SSL  = Boolean.parseBoolean(System.getProperty("email.imap.ssl", "true"));
+    private static final String  IMAP_PROTOCOL = IMAP_SSL ? PROTOCOL_IMAPS : "imap";
+    private static final String  SMTP_HOST_OVERRIDE = System.getProperty("email.smtp.host");
+
     // ---- OTP defaults ----
     private static final int  OTP_TIMEOUT_MINUTES = 2;
     private static final int  OTP_TAIL_DEFAULT    = 30;
     private static final int  OTP_TAIL_MIN        = 5;
     private static final long RETRY_SLEEP_MS      = 5_000L;
+    private static final long OTP_WAKEUP_MS       = 1_000L; // how often the shared watcher re-checks its waiters
+    private static final String IMAP_FETCH_SIZE   = "8192"; // bytes per partial BODY.PEEK fetch
+
+    private static final OtpTextScanner OTP_SCANNER = new OtpTextScanner(KEY_OTP_LENGTH, KEY_OTP_PREFERLAST);
 
     // Small holder for SMTP config
     private record SmtpConfig(String host, String port) {}
@@ -53,7 +71,6 @@ public class EmailManager {
     private static final class ImapContext implements AutoCloseable {
         private final Store store;
         private final Folder inbox;
-        private boolean expungeOnClose = false; // default for read flow
 
         ImapContext(Store store, Folder inbox) {
             this.store = store;
@@ -62,14 +79,26 @@ public class EmailManager {
 
         Folder inbox() { return inbox; }
 
-        /** For delete flow: request expunge on close (no param since it's always set to true by callers). */
-        void enableExpungeOnClose() { this.expungeOnClose = true; }
+        /** Cheap liveness probe: NOOP on the open folder (also picks up new EXISTS counts). */
+        boolean isHealthy() {
+            try {
+                if (!store.isConnected() || !inbox.isOpen()) return false;
+                ((com.sun.mail.imap.IMAPFolder) inbox).doCommand(protocol -> {
+                    protocol.simpleCommand("NOOP", null);
+                    return null;
+                });
+                return true;
+            } catch (Exception e) {
+                TestUtils.log().info("Pooled IMAP connection is stale: {}", e.getMessage());
+                return false;
+            }
+        }
 
         @Override
         public void close() {
             try {
                 if (inbox != null && inbox.isOpen()) {
-                    inbox.close(expungeOnClose);
+                    inbox.close(false);
                 }
             } catch (MessagingException e) {
                 TestUtils.log().fatal("Failed to close IMAP inbox: {}", e.getMessage());
@@ -85,6 +114,72 @@ public class EmailManager {
         }
     }
 
+    /**
+     * Long-lived IMAP connections (store + open INBOX) shared by OTP read and delete, so an OTP login does
+     * not pay for a TLS handshake, LOGIN and SELECT every time. Connections are health-checked with a NOOP
+     * when borrowed, replaced transparently when stale, and closed on JVM shutdown.
+     */
+    private static final class ImapPool {
+        private static final int MAX_IDLE = 4;
+        private static final Deque<ImapContext> IDLE = new ArrayDeque<>();
+
+        static {
+            Runtime.getRuntime().addShutdownHook(new Thread(ImapPool::closeAll, "imap-pool-shutdown"));
+        }
+
+        static ImapLease borrow() throws MessagingException {
+            ImapContext ctx;
+            while ((ctx = pollIdle()) != null) {
+                if (ctx.isHealthy()) {
+                    TestUtils.log().info("Reusing pooled IMAP connection");
+                    return new ImapLease(ctx);
+                }
+                ctx.close();
+            }
+            return new ImapLease(openImapContext(imapProperties(), KEY_MAIL_USERNAME, KEY_MAIL_PASSWORD));
+        }
+
+        static void giveBack(ImapContext ctx, boolean broken) {
+            if (!broken) {
+                synchronized (IDLE) {
+                    if (IDLE.size() < MAX_IDLE) {
+                        IDLE.push(ctx);
+                        return;
+                    }
+                }
+            }
+            ctx.close();
+        }
+
+        static void closeAll() {
+            ImapContext ctx;
+            while ((ctx = pollIdle()) != null) {
+                ctx.close();
+            }
+        }
+
+        private static ImapContext pollIdle() {
+            synchronized (IDLE) {
+                return IDLE.poll();
+            }
+        }
+    }
+
+    /** A borrowed pooled connection; closing returns it to the pool (or drops it when marked broken). */
+    private static final class ImapLease implements AutoCloseable {
+        private final ImapContext ctx;
+        private boolean broken;
+
+        ImapLease(ImapContext ctx) { this.ctx = ctx; }
+
+        Folder inbox() { return ctx.inbox(); }
+
+        void markBroken() { this.broken = true; }
+
+        @Override
+        public void close() { ImapPool.giveBack(ctx, broken); }
+    }
+
     /**
      * Sends an email with the given subject, body and optional file attachments.
      *
@@ -94,89 +189,157 @@ public class EmailManager {
      */
     public static void sendEmailWithAttachments(String subject, String body, File[] attachments) {
         try {
-            // 1) Read config
-            String provider  = KEY_MAIL_PROVIDER.toLowerCase(Locale.ROOT);
-            List<String> toList = splitEmails(KEY_MAIL_TO);
-            List<String> ccList = splitEmails(KEY_MAIL_CC);
-
-            // 2) Validate essentials
-            if (KEY_MAIL_USERNAME == null || KEY_MAIL_PASSWORD == null || toList.isEmpty()) {
-                TestUtils.log().error("Missing email configuration. Check {}, {} and {}.", KEY_MAIL_USERNAME, KEY_MAIL_PASSWORD, KEY_MAIL_TO);
-                return;
-            }
+            Message message = buildEmail(subject, body, attachments);
+            if (message == null) return;
+
+            Transport.send(message);
 
-            // 3) Resolve SMTP & session
-            SmtpConfig smtp = resolveSmtp(provider);
-            Session session = buildSmtpSession(smtp.host(), smtp.port(), KEY_MAIL_USERNAME, KEY_MAIL_PASSWORD);
-
-            // 4) Build message
-            Message message = new MimeMessage(session);
-            message.setFrom(new InternetAddress(KEY_MAIL_USERNAME));
-            message.setRecipients(Message.RecipientType.TO, toAddresses(toList));
-            InternetAddress[] ccAddresses = toAddresses(ccList);
-            if (ccAddresses.length > 0) {
-                message.setRecipients(Message.RecipientType.CC, ccAddresses);
+            if (TestUtils.log().isInfoEnabled()) {
+                TestUtils.log().info("Email sent successfully via {}", KEY_MAIL_PROVIDER.toUpperCase(Locale.ROOT));
             }
-            message.setSubject(subject);
+        } catch (Exception e) {
+            TestUtils.log().fatal("Failed to send email: {}", e.toString());
+        }
+    }
+
+    /**
+     * Queues a message whose MIME content was prepared by the caller (e.g. {@link OutcomeEmailBuilder}),
+     * with the configured sender and recipients.
+     *
+     * @return the queued .eml file, or null when the email configuration is incomplete
+     */
+    public static Path queueEmail(String subject, Multipart content) throws MessagingException, IOException {
+        MimeMessage message = buildEmail(subject, content);
+        return message == null ? null : MailOutbox.enqueue(message);
+    }
 
-            // 5) Body + attachments
-            Multipart multipart = new MimeMultipart();
+    /** SMTP session for the configured provider (or email.smtp.* override), shared with the outbox. */
+    static Session smtpSession() {
+        SmtpConfig smtp = resolveSmtp(KEY_MAIL_PROVIDER == null ? "" : KEY_MAIL_PROVIDER.toLowerCase(Locale.ROOT));
+        return buildSmtpSession(smtp.host(), smtp.port(), KEY_MAIL_USERNAME, KEY_MAIL_PASSWORD);
+    }
 
-            MimeBodyPart bodyPart = new MimeBodyPart();
-            bodyPart.setContent(body, "text/html");
-            multipart.addBodyPart(bodyPart);
+    private static MimeMessage buildEmail(String subject, String body, File[] attachments) throws MessagingException {
+        Multipart multipart = new MimeMultipart();
 
-            addAttachments(multipart, attachments);
+        MimeBodyPart bodyPart = new MimeBodyPart();
+        bodyPart.setContent(body, "text/html");
+        multipart.addBodyPart(bodyPart);
 
-            message.setContent(multipart);
+        addAttachments(multipart, attachments);
+        return buildEmail(subject, multipart);
+    }
 
-            // 6) Send
-            Transport.send(message);
+    private static MimeMessage buildEmail(String subject, Multipart content) throws MessagingException {
+        // 1) Read config
+        List<String> toList = splitEmails(KEY_MAIL_TO);
+        List<String> ccList = splitEmails(KEY_MAIL_CC);
 
-            if (TestUtils.log().isInfoEnabled()) {
-                TestUtils.log().info("Email sent successfully via {}", provider.toUpperCase(Locale.ROOT));
-            }
-        } catch (Exception e) {
-            TestUtils.log().fatal("Failed to send email: {}", e.toString());
+        // 2) Validate essentials
+        if (KEY_MAIL_USERNAME == null || KEY_MAIL_PASSWORD == null || toList.isEmpty()) {
+            TestUtils.log().error("Missing email configuration. Check {}, {} and {}.", KEY_MAIL_USERNAME, KEY_MAIL_PASSWORD, KEY_MAIL_TO);
+            return null;
+        }
+
+        // 3) Build message
+        MimeMessage message = new MimeMessage(smtpSession());
+        message.setFrom(new InternetAddress(KEY_MAIL_USERNAME));
+        message.setRecipients(Message.RecipientType.TO, toAddresses(toList));
+        InternetAddress[] ccAddresses = toAddresses(ccList);
+        if (ccAddresses.length > 0) {
+            message.setRecipients(Message.RecipientType.CC, ccAddresses);
         }
+        message.setSubject(subject);
+
+        // 4) Body + attachments
+        message.setContent(content);
+        message.saveChanges();
+        return message;
     }
 
     /**
      * Reads the OTP from the inbox by looking for an email matching subject and sender.
-     * Waits up to {@value #OTP_TIMEOUT_MINUTES} minutes retrying every {@value #RETRY_SLEEP_MS} ms.
-     * Refactored to reduce cognitive complexity, define a dedicated exception, and handle interruption properly.
+     * Waits up to {@value #OTP_TIMEOUT_MINUTES} minutes for it, notified by IMAP IDLE
+     * (or retrying every {@value #RETRY_SLEEP_MS} ms when the server has no IDLE).
+     * Goes through the shared mailbox watcher, so concurrent callers never get the same mail.
      */
     public static String readOtpFromInbox() {
-        String subjectLine = KEY_OTP_SUBJECT;
-        String senderEmail = KEY_OTP_SENDER;
+        return readOtpFromInbox(new Date());
+    }
 
-        int  tailWindow    = resolveTailWindow();
-        long deadline      = System.currentTimeMillis() + (OTP_TIMEOUT_MINUTES * 60_000L);
-        Date testStartTime = new Date();
+    /**
+     * Same as {@link #readOtpFromInbox()}, but accepts only mails received at or after {@code since}
+     * (e.g. the moment the login form was submitted, before this call).
+     */
+    public static String readOtpFromInbox(Date since) {
+        return awaitOtp(OtpRouter.register(since, null, null));
+    }
 
-        Properties props = new Properties();
-        props.put(PROP_STORE_PROTOCOL, PROTOCOL_IMAPS);
-        props.put(PROP_IMAPS_SSL_ENABLE, "true");
+    /** {@link #armOtpWait(String)} for a login whose role is unknown (matched first-come, first-served). */
+    public static CompletableFuture<String> armOtpWait() {
+        return armOtpWait(null);
+    }
+
+    /**
+     * Starts waiting for the OTP mail in the background. Call right before the action that sends the
+     * mail (submitting the login form) so the IMAP connection, search and IDLE overlap the page
+     * transition; the OTP step then only collects the result with {@link #awaitOtp(CompletableFuture)}.
+     * Cancelling the future (no OTP step after all) stops the wait.
+     * The role identifies the mail when several logins wait at once: otp.recipient.&lt;role&gt; (a plus
+     * address of the test mailbox) and the role's username in the mail text; see {@link OtpRouter}.
+     */
+    public static CompletableFuture<String> armOtpWait(String role) {
+        // INTERNALDATE has second precision: a mail landing within this second must still count
+        return armOtpWait(role, new Date(System.currentTimeMillis() / 1000 * 1000));
+    }
+
+    /** {@link #armOtpWait(String)} accepting mails received at or after {@code since} (armed after the submit). */
+    public static CompletableFuture<String> armOtpWait(String role, Date since) {
+        String recipient = null;
+        String username = null;
+        if (role != null && !role.isBlank()) {
+            recipient = new ConfigManager().getConfigProps().getProperty("otp.recipient." + role, "").trim();
+            username = BasePage.getUsername(role);
+        }
+        TestUtils.log().info("OTP wait armed{}", role == null ? "" : " for " + role);
+        return OtpRouter.register(since, recipient, username);
+    }
 
-        try (ImapContext ctx = openImapContext(props, KEY_MAIL_USERNAME, KEY_MAIL_PASSWORD)) {
-            return scanForOtpUntilTimeout(ctx.inbox(), tailWindow, testStartTime, subjectLine, senderEmail, deadline);
-        } catch (InterruptedException ie) {
-            Thread.currentThread().interrupt();
-            throw new OtpReadException("Thread interrupted while waiting for OTP.", ie);
-        } catch (MessagingException me) {
-            throw new OtpReadException("Mail error while reading OTP: " + me.getMessage(), me);
+    /** Result of an armed OTP wait; failures surface as {@link OtpReadException} like readOtpFromInbox. */
+    public static String awaitOtp(CompletableFuture<String> armed) {
+        TestUtils.log().info("OTP {} when the OTP step started", armed.isDone() ? "was already available" : "still pending");
+        try {
+            return armed.join();
+        } catch (CancellationException e) {
+            throw new OtpReadException("OTP wait was cancelled.", e);
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof OtpReadException ore) throw ore;
+            throw new OtpReadException("OTP wait failed: " + e.getCause().getMessage(), e.getCause());
         }
     }
 
     // ---- readOtpFromInbox helpers ----
 
+    private static Properties imapProperties() {
+        String prefix = "mail." + IMAP_PROTOCOL + ".";
+        Properties props = new Properties();
+        props.put(PROP_STORE_PROTOCOL, IMAP_PROTOCOL);
+        if (IMAP_SSL) props.put(PROP_IMAPS_SSL_ENABLE, "true");
+        props.put(prefix + "connectiontimeout", "15000");
+        // Read bodies in small BODY.PEEK[...]<offset.size> chunks, only as far as the OTP scanner gets
+        props.put(prefix + "partialfetch", "true");
+        props.put(prefix + "fetchsize", IMAP_FETCH_SIZE);
+        props.put(prefix + "peek", "true");
+        return props;
+    }
+
     private static ImapContext openImapContext(Properties props, String user, String pass)
             throws MessagingException {
-        TestUtils.log().info("Connecting to Gmail IMAP server → host={}, port={}, user={}", IMAP_HOST_GMAIL, IMAP_PORT_SSL, user);
+        TestUtils.log().info("Connecting to IMAP server → host={}, port={}, user={}", IMAP_HOST, IMAP_PORT, user);
         Session session = Session.getInstance(props);
-        Store store = session.getStore(PROTOCOL_IMAPS);
-        store.connect(IMAP_HOST_GMAIL, IMAP_PORT_SSL, user, pass);
-        TestUtils.log().info("Connected to Gmail successfully");
+        Store store = session.getStore(IMAP_PROTOCOL);
+        store.connect(IMAP_HOST, IMAP_PORT, user, pass);
+        TestUtils.log().info("Connected to {} successfully", IMAP_HOST);
 
         Folder inbox = store.getFolder("INBOX");
         inbox.open(Folder.READ_WRITE); // Required to mark messages as read
@@ -184,103 +347,379 @@ public class EmailManager {
         return new ImapContext(store, inbox);
     }
 
-    private static String scanForOtpUntilTimeout(
-            Folder inbox,
-            int tailWindow,
-            Date testStartTime,
-            String subjectLine,
-            String senderEmail,
-            long deadline
-    ) throws MessagingException, InterruptedException {
+    /**
+     * One mailbox watcher shared by every thread waiting for an OTP, so concurrent logins (parallel
+     * workers, load mode) never take each other's code. Waiters register around their login's submit with
+     * the submit time as since; the watcher holds one pooled connection, searches once, then waits for new
+     * mail (IMAP IDLE, else polling every RETRY_SLEEP_MS) and hands each OTP mail to exactly one open waiter
+     * whose since is not after the mail was received:
+     *   1. the waiter whose otp.recipient.&lt;role&gt; (e.g. a plus address) is a recipient of the mail,
+     *   2. else the waiter whose username appears in the mail text (longest match wins),
+     *   3. else the earliest-armed waiter without a recipient (ambiguous with several waiting; logged).
+     * Every UID is consumed once. OTP mails nobody could take yet (no matching waiter, or received before
+     * every waiter's since) are kept, up to the tail window, and offered again when a waiter registers, so a
+     * waiter armed after its mail arrived (since = the earlier submit time) still gets it.
+     * The watcher thread ends when nobody waits.
+     */
+    private static final class OtpRouter {
+        private static final List<Waiter> WAITERS = new ArrayList<>(); // in arm order; also the lock
+        private static final Set<Long> CONSUMED = ConcurrentHashMap.newKeySet();
+        private static final AtomicLong SEQUENCE = new AtomicLong();
+        private static final AtomicBoolean REGISTERED = new AtomicBoolean(); // a waiter joined since the last check
+        private static Thread watcherThread; // guarded by WAITERS
+
+        private record Waiter(long id, Date since, long deadline, String recipient, String username,
+                              CompletableFuture<String> otp) {}
+
+        /** An OTP mail not handed out yet; the code is only read once some waiter could take the mail. */
+        private static final class Candidate {
+            final Message msg;
+            final Date received;
+            OtpTextScanner.Hit hit;
+
+            Candidate(Message msg, Date received) {
+                this.msg = msg;
+                this.received = received;
+            }
+        }
 
-        while (System.currentTimeMillis() < deadline) {
-            int total = inbox.getMessageCount();
-            if (total <= 0) {
-                TestUtils.log().info("Mailbox empty. Will retry...");
-                waitBeforeRetry(deadline);
-                continue;
+        static CompletableFuture<String> register(Date since, String recipient, String username) {
+            Waiter waiter = new Waiter(SEQUENCE.incrementAndGet(), since,
+                    System.currentTimeMillis() + OTP_TIMEOUT_MINUTES * 60_000L,
+                    blankToNull(recipient), blankToNull(username), new CompletableFuture<>());
+            synchronized (WAITERS) {
+                WAITERS.add(waiter);
+                REGISTERED.set(true);
+                if (watcherThread == null) {
+                    watcherThread = new Thread(OtpRouter::run, "otp-mailbox");
+                    watcherThread.setDaemon(true);
+                    watcherThread.start();
+                }
             }
+            // Cancelled or completed waiters leave the queue
+            waiter.otp().whenComplete((value, error) -> {
+                synchronized (WAITERS) {
+                    WAITERS.remove(waiter);
+                }
+            });
+            return waiter.otp();
+        }
 
-            int start = Math.max(1, total - tailWindow + 1);
-            Message[] messages = fetchRecentMessages(inbox, start, total);
+        private static void run() {
+            String lastError = null;
+            while (true) {
+                expire(lastError);
+                Date since;
+                synchronized (WAITERS) {
+                    if (WAITERS.isEmpty()) {
+                        watcherThread = null;
+                        return;
+                    }
+                    REGISTERED.set(false); // the search below covers every waiter registered so far
+                    since = WAITERS.stream().map(Waiter::since).min(Date::compareTo).orElseThrow();
+                }
+                try (ImapLease lease = ImapPool.borrow()) {
+                    try {
+                        watch(lease.inbox(), since);
+                    } catch (MessagingException | IllegalStateException e) {
+                        lease.markBroken();
+                        throw e;
+                    }
+                } catch (Exception e) {
+                    lastError = e.getMessage();
+                    TestUtils.log().warn("OTP mailbox watch failed, retrying: {}", lastError);
+                    pause(RETRY_SLEEP_MS);
+                }
+            }
+        }
 
-            TestUtils.log().info("Scanning last {} message(s) (range {}-{}) for OTP...", messages.length, start, total);
+        /**
+         * Searches once, then routes new mail until no waiter is left. Returns early (and is restarted with a
+         * fresh search) when a waiter registers whose since lies before the day this search started from.
+         */
+        private static void watch(Folder inbox, Date since) throws MessagingException {
+            int tailWindow = resolveTailWindow();
+            OtpSearch search = new OtpSearch(inbox, KEY_OTP_SUBJECT, KEY_OTP_SENDER, since, tailWindow);
+            Map<Long, Candidate> unowned = new LinkedHashMap<>(); // uid -> OTP mail, oldest first
+
+            // Start watching before the first scan so a message landing in between is not missed
+            try (ImapIdleWatcher watcher = ImapIdleWatcher.startIfSupported(inbox)) {
+                String mode = watcher != null ? "IDLE" : "poll";
+                boolean firstScan = true;
+
+                while (expire(null)) {
+                    if (REGISTERED.getAndSet(false)) {
+                        if (searchStart(minSince()).before(searchStart(since))) {
+                            TestUtils.log().info("OTP waiter armed for earlier mail; restarting the mailbox search");
+                            return;
+                        }
+                        deliver(unowned, mode); // the new waiter may own a mail that arrived before it armed
+                    }
+                    Message[] messages = new Message[0];
+                    if (firstScan || watcher == null) {
+                        messages = search.next();
+                    } else {
+                        List<Message> arrived = watcher.awaitNewMessages(OTP_WAKEUP_MS);
+                        if (!arrived.isEmpty()) {
+                            TestUtils.log().info("IDLE: {} new message(s) pushed by the server", arrived.size());
+                            messages = search.within(arrived.toArray(new Message[0]));
+                        }
+                    }
+                    collect(messages, unowned);
+                    deliver(unowned, mode);
+                    while (unowned.size() > tailWindow) {
+                        unowned.remove(unowned.keySet().iterator().next());
+                    }
 
-            Optional<String> maybeOtp = tryExtractOtpFromMessages(messages, testStartTime, subjectLine, senderEmail);
-            if (maybeOtp.isPresent()) {
-                return maybeOtp.get();
+                    if (watcher == null && expire(null)) {
+                        TestUtils.log().info("OTP not found yet. Will retry...");
+                        pause(RETRY_SLEEP_MS);
+                    }
+                    firstScan = false;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
             }
+        }
+
+        /** Adds the OTP mails (subject + sender) among {@code messages} to the candidates, oldest first. */
+        private static void collect(Message[] messages, Map<Long, Candidate> unowned) {
+            String expectedSubject = KEY_OTP_SUBJECT == null ? "" : KEY_OTP_SUBJECT.trim();
+            String senderNeedle    = KEY_OTP_SENDER == null ? "" : KEY_OTP_SENDER.toLowerCase(Locale.ROOT);
 
-            TestUtils.log().info("OTP not found yet. Will retry...");
-            waitBeforeRetry(deadline);
+            for (Message msg : messages) {
+                try {
+                    long uid = ((UIDFolder) msg.getFolder()).getUID(msg);
+                    Date received = msg.getReceivedDate();
+                    if (CONSUMED.contains(uid) || received == null || unowned.containsKey(uid)) continue;
+                    if (matchesSubjectAndSender(msg, expectedSubject, senderNeedle)) {
+                        unowned.put(uid, new Candidate(msg, received));
+                    }
+                } catch (MessagingException me) {
+                    TestUtils.log().warn("Message access error while scanning for OTP: {}", me.getMessage());
+                }
+            }
         }
 
-        throw new OtpReadException("OTP email not received within " + OTP_TIMEOUT_MINUTES + " minutes.");
-    }
+        /** Oldest first: an earlier mail belongs to an earlier login. Mails nobody can take yet stay. */
+        private static void deliver(Map<Long, Candidate> unowned, String mode) {
+            Iterator<Map.Entry<Long, Candidate>> it = unowned.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<Long, Candidate> entry = it.next();
+                Candidate candidate = entry.getValue();
+                Message msg = candidate.msg;
+                try {
+                    if (CONSUMED.contains(entry.getKey())) {
+                        it.remove();
+                        continue;
+                    }
+                    if (!anyWaiterSince(candidate.received)) continue;
 
-    private static Message[] fetchRecentMessages(Folder inbox, int start, int end) throws MessagingException {
-        if (end < start) {
-            return new Message[0];
+                    if (candidate.hit == null) {
+                        Optional<OtpTextScanner.Hit> hit = extractOtpFromMessage(msg);
+                        if (hit.isEmpty()) {
+                            it.remove();
+                            continue;
+                        }
+                        candidate.hit = hit.get();
+                    }
+                    Optional<Map.Entry<Waiter, String>> owner = ownerOf(msg, candidate.received, candidate.hit.text());
+                    if (owner.isEmpty()) continue;
+                    it.remove();
+                    if (!CONSUMED.add(entry.getKey())) continue;
+
+                    msg.setFlag(Flags.Flag.SEEN, true);
+                    Waiter waiter = owner.get().getKey();
+                    TestUtils.log().info("OTP extracted and message marked as read: {}", candidate.hit.otp());
+                    TestUtils.log().info("OTP detected via {}, routed to login #{} by {}", mode, waiter.id(), owner.get().getValue());
+                    TestUtils.log().info("OTP read time: {}", LocalTime.now());
+                    logDetectionLatency(msg);
+                    waiter.otp().complete(candidate.hit.otp());
+                } catch (EmailContentException ece) {
+                    TestUtils.log().warn("Failed to parse message content: {}", ece.getMessage());
+                    it.remove();
+                } catch (MessagingException me) {
+                    TestUtils.log().warn("Message access error while scanning for OTP: {}", me.getMessage());
+                    it.remove();
+                }
+            }
         }
-        Message[] messages = inbox.getMessages(start, end);
 
-        // Prefetch envelope + flags to reduce per-message round trips
-        FetchProfile fp = new FetchProfile();
-        fp.add(FetchProfile.Item.ENVELOPE);
-        fp.add(FetchProfile.Item.FLAGS);
-        inbox.fetch(messages, fp);
-        return messages;
-    }
+        /** The waiter a mail belongs to, with the reason it matched. */
+        private static Optional<Map.Entry<Waiter, String>> ownerOf(Message msg, Date received, String text)
+                throws MessagingException {
+            Set<String> recipients = recipientsOf(msg);
+            String lowerText = text.toLowerCase(Locale.ROOT);
+            List<Waiter> open;
+            synchronized (WAITERS) {
+                open = WAITERS.stream().filter(w -> !w.otp().isDone() && !received.before(w.since())).toList();
+            }
+            Optional<Waiter> byRecipient = open.stream()
+                    .filter(w -> w.recipient() != null && recipients.contains(w.recipient()))
+                    .findFirst();
+            if (byRecipient.isPresent()) return Optional.of(Map.entry(byRecipient.get(), "recipient"));
+
+            Optional<Waiter> byUsername = open.stream()
+                    .filter(w -> w.username() != null && lowerText.contains(w.username()))
+                    .max(Comparator.comparingInt(w -> w.username().length()));
+            if (byUsername.isPresent()) return Optional.of(Map.entry(byUsername.get(), "username"));
+
+            List<Waiter> unaddressed = open.stream().filter(w -> w.recipient() == null).toList();
+            if (unaddressed.size() > 1) {
+                TestUtils.log().warn("{} logins wait for an OTP and the mail names none of them; giving it to the earliest."
+                        + " Set otp.recipient.<role> to plus addresses to route reliably.", unaddressed.size());
+            }
+            return unaddressed.stream().findFirst().map(w -> Map.entry(w, "arm order"));
+        }
 
-    /**
-     * Reduced-complexity scanner: newest → oldest; delegates checks to tiny helpers.
-     */
-    private static Optional<String> tryExtractOtpFromMessages(
-            Message[] messages,
-            Date testStartTime,
-            String subjectLine,
-            String senderEmail
-    ) {
-        final String expectedSubject = subjectLine == null ? "" : subjectLine.trim();
-        final String senderNeedle    = senderEmail == null ? "" : senderEmail.toLowerCase(Locale.ROOT);
+        private static Set<String> recipientsOf(Message msg) throws MessagingException {
+            Set<String> out = new HashSet<>();
+            Address[] all = msg.getAllRecipients();
+            if (all != null) {
+                for (Address a : all) {
+                    out.add((a instanceof InternetAddress ia ? ia.getAddress() : a.toString()).toLowerCase(Locale.ROOT));
+                }
+            }
+            String[] delivered = msg.getHeader("Delivered-To");
+            if (delivered != null) {
+                for (String d : delivered) out.add(d.trim().toLowerCase(Locale.ROOT));
+            }
+            return out;
+        }
 
-        for (int i = messages.length - 1; i >= 0; i--) {
+        private static Date minSince() {
+            synchronized (WAITERS) {
+                return WAITERS.stream().map(Waiter::since).min(Date::compareTo).orElse(new Date());
+            }
+        }
+
+        /** Start of the day of {@code since}: IMAP SINCE has day precision, so the search covers that whole day. */
+        private static Date searchStart(Date since) {
+            return Date.from(since.toInstant().atZone(ZoneId.systemDefault()).toLocalDate()
+                    .atStartOfDay(ZoneId.systemDefault()).toInstant());
+        }
+
+        private static boolean anyWaiterSince(Date received) {
+            synchronized (WAITERS) {
+                return WAITERS.stream().anyMatch(w -> !received.before(w.since()));
+            }
+        }
+
+        /** Fails waiters past their deadline; returns whether anybody is still waiting. */
+        private static boolean expire(String lastError) {
+            long now = System.currentTimeMillis();
+            List<Waiter> expired;
+            boolean waiting;
+            synchronized (WAITERS) {
+                expired = WAITERS.stream().filter(w -> w.deadline() <= now).toList();
+                WAITERS.removeAll(expired);
+                waiting = !WAITERS.isEmpty();
+            }
+            String reason = "OTP email not received within " + OTP_TIMEOUT_MINUTES + " minutes."
+                    + (lastError != null ? " Last mail error: " + lastError : "");
+            expired.forEach(w -> w.otp().completeExceptionally(new OtpReadException(reason)));
+            return waiting;
+        }
+
+        private static String blankToNull(String value) {
+            return value == null || value.isBlank() ? null : value.trim().toLowerCase(Locale.ROOT);
+        }
+
+        private static void pause(long ms) {
             try {
-                Optional<String> otp = maybeOtpFromMessage(messages[i], testStartTime, expectedSubject, senderNeedle);
-                if (otp.isPresent()) {
-                    TestUtils.log().info("OTP extracted and message marked as read: {}", otp.get());
-                    TestUtils.log().info("OTP read time: {}", LocalTime.now());
-                    return otp;
-                }
-            } catch (EmailContentException ece) {
-                TestUtils.log().warn("Failed to parse message content: {}", ece.getMessage());
-            } catch (MessagingException me) {
-                TestUtils.log().warn("Message access error while scanning for OTP: {}", me.getMessage());
+                TimeUnit.MILLISECONDS.sleep(ms);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
             }
         }
-        return Optional.empty();
     }
 
     /**
-     * Single-message pipeline: guard by recency and header match, then extract OTP and mark SEEN.
-     * Kept small to reduce cognitive complexity in the caller.
+     * Server-side OTP search with an incremental UID cursor. The first call asks the server for
+     * FROM + SUBJECT + SINCE matches; later calls only consider UIDs above the highest one already
+     * seen, so neither unrelated mail nor mail examined before is fetched again.
+     * IMAP SEARCH matches substrings and SINCE has day precision, so callers keep the exact checks.
      */
-    private static Optional<String> maybeOtpFromMessage(
-            Message msg, Date testStartTime, String expectedSubject, String senderNeedle
-    ) throws MessagingException, EmailContentException {
-        if (!isRecent(msg, testStartTime)) return Optional.empty();
-        if (!matchesSubjectAndSender(msg, expectedSubject, senderNeedle)) return Optional.empty();
+    private static final class OtpSearch {
+        private final Folder inbox;
+        private final SearchTerm term;
+        private final int tailWindow;
+        private final Set<Long> examined = new HashSet<>();
+        private long lastUid = -1;
 
-        Optional<String> otp = extractOtpFromMessage(msg);
-        if (otp.isPresent()) {
-            msg.setFlag(Flags.Flag.SEEN, true);
+        OtpSearch(Folder inbox, String subjectLine, String senderEmail, Date since, int tailWindow) {
+            this.inbox = inbox;
+            this.term = new AndTerm(otpHeaderTerm(subjectLine, senderEmail), new ReceivedDateTerm(ComparisonTerm.GE, since));
+            this.tailWindow = tailWindow;
         }
-        return otp;
+
+        /** Matching messages not examined yet: the newest tailWindow matches first, then only new UIDs. */
+        Message[] next() throws MessagingException {
+            UIDFolder uids = (UIDFolder) inbox;
+            if (lastUid < 0) {
+                int total = inbox.getMessageCount();
+                lastUid = total > 0 ? uids.getUID(inbox.getMessage(total)) : 0;
+                Message[] found = inbox.search(term);
+                if (found.length > tailWindow) {
+                    found = Arrays.copyOfRange(found, found.length - tailWindow, found.length);
+                }
+                TestUtils.log().info("Server search: {} OTP candidate(s) among {} message(s)", found.length, total);
+                return remember(found);
+            }
+            Message[] fresh = Arrays.stream(uids.getMessagesByUID(lastUid + 1, UIDFolder.LASTUID))
+                    .filter(Objects::nonNull)
+                    .toArray(Message[]::new);
+            return within(fresh);
+        }
+
+        /** Narrows newly arrived messages to the OTP candidates among them. */
+        Message[] within(Message[] arrived) throws MessagingException {
+            if (arrived.length == 0) return arrived;
+            UIDFolder uids = (UIDFolder) inbox;
+            FetchProfile fp = new FetchProfile();
+            fp.add(UIDFolder.FetchProfileItem.UID);
+            inbox.fetch(arrived, fp);
+            List<Message> unseen = new ArrayList<>();
+            for (Message m : arrived) {
+                long uid = uids.getUID(m);
+                lastUid = Math.max(lastUid, uid);
+                if (!examined.contains(uid)) unseen.add(m);
+            }
+            if (unseen.isEmpty()) return new Message[0];
+            return remember(inbox.search(term, unseen.toArray(new Message[0])));
+        }
+
+        private Message[] remember(Message[] candidates) throws MessagingException {
+            if (candidates.length == 0) return candidates;
+            FetchProfile fp = new FetchProfile();
+            fp.add(FetchProfile.Item.ENVELOPE);
+            fp.add(FetchProfile.Item.FLAGS);
+            fp.add(FetchProfile.Item.CONTENT_INFO); // BODYSTRUCTURE, so the scanner can pick the text part
+            fp.add(UIDFolder.FetchProfileItem.UID);
+            fp.add("Delivered-To"); // recipient routing for concurrent logins
+            inbox.fetch(candidates, fp);
+            for (Message m : candidates) {
+                examined.add(((UIDFolder) inbox).getUID(m));
+            }
+            return candidates;
+        }
+    }
+
+    /** FROM + SUBJECT criteria for OTP mails; blank values do not restrict. */
+    private static SearchTerm otpHeaderTerm(String subjectLine, String senderEmail) {
+        List<SearchTerm> terms = new ArrayList<>();
+        if (senderEmail != null && !senderEmail.isBlank()) terms.add(new FromStringTerm(senderEmail.trim()));
+        if (subjectLine != null && !subjectLine.isBlank()) terms.add(new SubjectTerm(subjectLine.trim()));
+        if (terms.isEmpty()) return new SubjectTerm(""); // matches every message
+        return terms.size() == 1 ? terms.get(0) : new AndTerm(terms.toArray(new SearchTerm[0]));
     }
 
-    private static boolean isRecent(Message msg, Date testStartTime) throws MessagingException {
+    /** Logs how long after the server received the OTP mail (INTERNALDATE, second precision) it was detected. */
+    private static void logDetectionLatency(Message msg) throws MessagingException {
         Date received = msg.getReceivedDate();
-        return received != null && !received.before(testStartTime);
+        if (received != null) {
+            TestUtils.log().info("OTP delivery-to-detection latency: {} ms", System.currentTimeMillis() - received.getTime());
+        }
     }
 
     private static boolean matchesSubjectAndSender(Message msg, String expectedSubject, String senderNeedle)
@@ -296,50 +735,15 @@ public class EmailManager {
         return subjectMatches && senderMatches;
     }
 
-    private static Optional<String> extractOtpFromMessage(Message msg) throws EmailContentException {
-        String content = getTextFromMessage(msg);
-        if (content == null) return Optional.empty();
-        String otp = extractOtp(content);
-        return Optional.ofNullable(otp);
-    }
-
-    /**
-     * Extracts plain text content from an email Message.
-     * Supports "text/plain" or multipart messages.
-     *
-     * @throws EmailContentException when the content cannot be read
-     */
-    private static String getTextFromMessage(Message message) throws EmailContentException {
+    /** Streams only the text part(s) of the message and stops at the code; see {@link OtpTextScanner}. */
+    private static Optional<OtpTextScanner.Hit> extractOtpFromMessage(Message msg) throws EmailContentException {
         try {
-            if (message.isMimeType("text/plain")) {
-                Object content = message.getContent();
-                return content != null ? content.toString() : null;
-            } else if (message.isMimeType("multipart/*")) {
-                Multipart multipart = (Multipart) message.getContent();
-                for (int i = 0; i < multipart.getCount(); i++) {
-                    BodyPart part = multipart.getBodyPart(i);
-                    if (part.isMimeType("text/plain")) {
-                        Object inner = part.getContent();
-                        return inner != null ? inner.toString() : null;
-                    }
-                }
-            }
-            return null; // no plain text found
+            return OTP_SCANNER.scan(msg);
         } catch (Exception e) {
             throw new EmailContentException("Unable to read email content: " + e.getMessage(), e);
         }
     }
 
-    /**
-     * Extracts the OTP from email content by searching for 4 to 8 digit numbers.
-     */
-    private static String extractOtp(String content) {
-        // Matches 4 to 8 consecutive digits followed by optional non-digit characters
-        Pattern pattern = Pattern.compile("(\\d{4,8})\\D?");
-        Matcher matcher = pattern.matcher(content);
-        return matcher.find() ? matcher.group(1) : null;
-    }
-
     /**
      * Deletes the most recent OTP email from inbox that matches the subject and sender,
      * but only if the email is already marked as read.
@@ -352,12 +756,8 @@ public class EmailManager {
 
         int tailWindow = resolveTailWindow();
 
-        Properties props = new Properties();
-        props.put(PROP_STORE_PROTOCOL, PROTOCOL_IMAPS);
-        props.put(PROP_IMAPS_SSL_ENABLE, "true");
-
-        try (ImapContext ctx = openImapContext(props, KEY_MAIL_USERNAME, KEY_MAIL_PASSWORD)) {
-            Folder inbox = ctx.inbox();
+        try (ImapLease lease = ImapPool.borrow()) {
+            Folder inbox = lease.inbox();
 
             int total = inbox.getMessageCount();
             if (total == 0) {
@@ -371,7 +771,7 @@ public class EmailManager {
 
             if (latestOtpMessage.isPresent()) {
                 latestOtpMessage.get().setFlag(Flags.Flag.DELETED, true);
-                ctx.enableExpungeOnClose(); // expunge when ctx closes
+                inbox.expunge(); // folder stays open for the next borrower
                 TestUtils.log().info("Deleted latest read OTP email from {}", senderEmail);
             } else {
                 TestUtils.log().warn("No read OTP email found to delete for {}", senderEmail);
@@ -383,6 +783,12 @@ public class EmailManager {
 
     // ---------- helpers ----------
 
+    /** System property override, else the value from .env.sec (only loaded when something is not overridden). */
+    private static String setting(String property, String secKey) {
+        String override = System.getProperty(property);
+        return override != null ? override : SecureConfig.value(secKey);
+    }
+
     /** Accepts nullable CSV string to avoid Optional in parameter position. */
     private static List<String> splitEmails(String csv) {
         if (csv == null || csv.isBlank()) return List.of();
@@ -409,6 +815,9 @@ public class EmailManager {
     }
 
     private static SmtpConfig resolveSmtp(String provider) {
+        if (SMTP_HOST_OVERRIDE != null) {
+            return new SmtpConfig(SMTP_HOST_OVERRIDE, System.getProperty("email.smtp.port", SMTP_PORT_TLS));
+        }
         String p = Objects.toString(provider, ""); // avoids NPE
         return switch (p) {
             case PROVIDER_OUTLOOK -> new SmtpConfig(SMTP_HOST_O365, SMTP_PORT_TLS);
@@ -423,6 +832,10 @@ public class EmailManager {
         props.put("mail.smtp.starttls.enable", "true");
         props.put("mail.smtp.host", host);
         props.put("mail.smtp.port", port);
+        // Bounded, so an outbox drain never hangs the end of the run
+        props.put("mail.smtp.connectiontimeout", "15000");
+        props.put("mail.smtp.timeout", "60000");
+        props.put("mail.smtp.writetimeout", "60000");
 
         return Session.getInstance(props, new Authenticator() {
             @Override
@@ -475,7 +888,8 @@ public class EmailManager {
     /**
      * Finds the newest (latest) message in [start, end] that is already READ (SEEN)
      * and matches the given subject and sender.
-     * Uses prefetch (ENVELOPE, FLAGS) to reduce round trips.
+     * The server narrows the range to SEEN mails from the sender with the subject; only those are
+     * fetched (ENVELOPE, FLAGS) and checked exactly.
      * No break/continue usage in the caller; single linear pass here.
      */
     private static Optional<Message> findLatestReadMatchingMessage(
@@ -485,7 +899,9 @@ public class EmailManager {
             return Optional.empty();
         }
 
-        Message[] messages = inbox.getMessages(start, end);
+        SearchTerm readOtpMail = new AndTerm(new FlagTerm(new Flags(Flags.Flag.SEEN), true),
+                otpHeaderTerm(subjectLine, senderEmail));
+        Message[] messages = inbox.search(readOtpMail, inbox.getMessages(start, end));
 
         FetchProfile fp = new FetchProfile();
         fp.add(FetchProfile.Item.ENVELOPE);
@@ -529,16 +945,4 @@ public class EmailManager {
     public static class EmailContentException extends Exception {
         public EmailContentException(String message, Throwable cause) { super(message, cause); }
     }
-
-    /** Sleeps up to RETRY_SLEEP_MS, but never beyond the overall deadline. */
-    private static void waitBeforeRetry(long deadline) throws InterruptedException {
-        long remaining = deadline - System.currentTimeMillis();
-        if (remaining <= 0) {
-            return; // out of time; loop will exit on next check
-        }
-        long sleepMs = Math.min(RETRY_SLEEP_MS, remaining);
-        TestUtils.log().info("Waiting {} second(s) before retry...", java.util.concurrent.TimeUnit.MILLISECONDS.toSeconds(sleepMs));
-        java.util.concurrent.TimeUnit.MILLISECONDS.sleep(sleepMs);
-    }
 }
-
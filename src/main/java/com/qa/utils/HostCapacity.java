@@ -0,0 +1,47 @@
+package com.qa.utils;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Sizes how many real browsers this machine can drive at once:
+ * one core per browser and memoryPerBrowserMb of currently free physical memory each.
+ */
+public final class HostCapacity {
+
+    private HostCapacity() {
+        throw new UnsupportedOperationException("Utility class - instantiation not allowed");
+    }
+
+    public static int maxConcurrentBrowsers(long memoryPerBrowserMb) {
+        int cores = Runtime.getRuntime().availableProcessors();
+        long freeMb = freePhysicalMemoryMb();
+        int byMemory = freeMb > 0 ? (int) Math.max(1, freeMb / Math.max(1, memoryPerBrowserMb)) : cores;
+        int max = Math.max(1, Math.min(cores, byMemory));
+        TestUtils.log().info("Host capacity: cores={}, freeMemory={} MB, memoryPerBrowser={} MB -> max {} browser(s)",
+                cores, freeMb, memoryPerBrowserMb, max);
+        return max;
+    }
+
+    /**
+     * Resolves a configured concurrency value: "auto" (or blank) sizes from the host,
+     * a number is capped at the host capacity.
+     */
+    public static int resolve(String configured, long memoryPerBrowserMb) {
+        int max = maxConcurrentBrowsers(memoryPerBrowserMb);
+        if (configured == null || configured.isBlank() || "auto".equalsIgnoreCase(configured.trim())) {
+            return max;
+        }
+        int requested = Integer.parseInt(configured.trim());
+        if (requested > max) {
+            TestUtils.log().warn("Requested {} concurrent browser(s) but host supports about {}. Capping.", requested, max);
+        }
+        return Math.max(1, Math.min(requested, max));
+    }
+
+    private static long freePhysicalMemoryMb() {
+        if (ManagementFactory.getOperatingSystemMXBean() instanceof com.sun.management.OperatingSystemMXBean os) {
+            return os.getFreeMemorySize() / (1024 * 1024);
+        }
+        return -1;
+    }
+}
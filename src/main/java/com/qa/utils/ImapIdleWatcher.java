@@ -0,0 +1,110 @@
+package com.qa.utils;
+
+import com.sun.mail.imap.IMAPFolder;
+import com.sun.mail.imap.IMAPStore;
+import jakarta.mail.Folder;
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.event.MessageCountAdapter;
+import jakarta.mail.event.MessageCountEvent;
+import jakarta.mail.event.MessageCountListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Push-based new-mail notification for an open IMAP folder (RFC 2177 IDLE).
+ * A daemon thread keeps the folder in IDLE; the server pushes EXISTS as soon as a message lands and
+ * the MessageCountListener hands the new messages to whoever waits in {@link #awaitNewMessages(long)}.
+ * Other threads may keep using the folder: any folder command ends the current IDLE and the idle thread
+ * re-enters it afterwards. {@link #close()} ends it with a NOOP.
+ */
+public final class ImapIdleWatcher implements AutoCloseable {
+
+    private final IMAPFolder folder;
+    private final LinkedBlockingQueue<Message> arrived = new LinkedBlockingQueue<>();
+    private final MessageCountListener listener = new MessageCountAdapter() {
+        @Override
+        public void messagesAdded(MessageCountEvent e) {
+            arrived.addAll(Arrays.asList(e.getMessages()));
+        }
+    };
+    private final Thread idleThread;
+    private volatile boolean running = true;
+
+    private ImapIdleWatcher(IMAPFolder folder) {
+        this.folder = folder;
+        folder.addMessageCountListener(listener);
+        idleThread = new Thread(this::idleLoop, "imap-idle-" + folder.getFullName());
+        idleThread.setDaemon(true);
+        idleThread.start();
+    }
+
+    /**
+     * Starts watching if the server supports IDLE.
+     * @return the watcher, or null when the caller has to fall back to polling
+     */
+    public static ImapIdleWatcher startIfSupported(Folder folder) {
+        try {
+            if (folder instanceof IMAPFolder imapFolder
+                    && folder.getStore() instanceof IMAPStore store
+                    && store.hasCapability("IDLE")) {
+                return new ImapIdleWatcher(imapFolder);
+            }
+        } catch (MessagingException e) {
+            TestUtils.log().warn("IMAP capability check failed, polling instead: {}", e.getMessage());
+        }
+        TestUtils.log().info("IMAP server does not support IDLE, polling instead.");
+        return null;
+    }
+
+    /**
+     * Waits until the server reports new messages or the timeout passes.
+     * @return the newly arrived messages (empty on timeout)
+     */
+    public List<Message> awaitNewMessages(long timeoutMs) throws InterruptedException {
+        List<Message> out = new ArrayList<>();
+        Message first = arrived.poll(Math.max(0, timeoutMs), TimeUnit.MILLISECONDS);
+        if (first != null) {
+            out.add(first);
+            arrived.drainTo(out);
+        }
+        return out;
+    }
+
+    private void idleLoop() {
+        while (running && folder.isOpen()) {
+            try {
+                folder.idle(); // returns when another thread uses the folder; then idle again
+            } catch (Exception e) {
+                if (running) {
+                    TestUtils.log().warn("IMAP IDLE ended: {}", e.getMessage());
+                }
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        folder.removeMessageCountListener(listener);
+        try {
+            // Any command aborts the IDLE in progress
+            folder.doCommand(protocol -> {
+                protocol.simpleCommand("NOOP", null);
+                return null;
+            });
+        } catch (Exception e) {
+            TestUtils.log().debug("NOOP to end IDLE failed: {}", e.getMessage());
+        }
+        try {
+            idleThread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
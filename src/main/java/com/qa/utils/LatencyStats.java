@@ -0,0 +1,118 @@
+package com.qa.utils;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread-safe latency recorder for the load modes: samples (microseconds), error counts by reason,
+ * percentiles and a log-scale histogram. Sized for thousands to low millions of samples per run.
+ */
+public class LatencyStats {
+
+    private final String name;
+    private long[] samplesUs = new long[1024];
+    private int count;
+    private final Map<String, AtomicLong> errors = new ConcurrentHashMap<>();
+
+    public LatencyStats(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public synchronized void recordNanos(long nanos) {
+        if (count == samplesUs.length) {
+            samplesUs = Arrays.copyOf(samplesUs, count * 2);
+        }
+        samplesUs[count++] = Math.max(0, nanos / 1_000);
+    }
+
+    /** Counts a failed operation; the reason is typically an HTTP status or exception class. */
+    public void recordError(String reason) {
+        errors.computeIfAbsent(reason, k -> new AtomicLong()).incrementAndGet();
+    }
+
+    public synchronized int count() {
+        return count;
+    }
+
+    public long errorCount() {
+        return errors.values().stream().mapToLong(AtomicLong::get).sum();
+    }
+
+    /** Error counts by reason, most frequent first. */
+    public Map<String, Long> errorBreakdown() {
+        Map<String, Long> out = new LinkedHashMap<>();
+        errors.entrySet().stream()
+                .sorted((a, b) -> Long.compare(b.getValue().get(), a.getValue().get()))
+                .forEach(e -> out.put(e.getKey(), e.getValue().get()));
+        return out;
+    }
+
+    public double errorRate() {
+        long errs = errorCount();
+        long total = count() + errs;
+        return total == 0 ? 0 : (double) errs / total;
+    }
+
+    /** Percentile (0..100) in milliseconds using nearest-rank; 0 when there are no samples. */
+    public double percentileMs(double percentile) {
+        long[] sorted = sortedSamples();
+        if (sorted.length == 0) return 0;
+        int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+        return sorted[Math.min(sorted.length - 1, Math.max(0, rank - 1))] / 1000.0;
+    }
+
+    public double meanMs() {
+        long[] sorted = sortedSamples();
+        if (sorted.length == 0) return 0;
+        long sum = 0;
+        for (long v : sorted) sum += v;
+        return sum / 1000.0 / sorted.length;
+    }
+
+    public double maxMs() {
+        long[] sorted = sortedSamples();
+        return sorted.length == 0 ? 0 : sorted[sorted.length - 1] / 1000.0;
+    }
+
+    /**
+     * Histogram with power-of-two millisecond buckets ("<1 ms", "1-2 ms", "2-4 ms", ...),
+     * empty buckets omitted.
+     */
+    public Map<String, Integer> histogram() {
+        Map<String, Integer> buckets = new LinkedHashMap<>();
+        long[] sorted = sortedSamples();
+        int i = 0;
+        long upperMs = 1;
+        while (i < sorted.length) {
+            long lowerMs = upperMs / 2;
+            int inBucket = 0;
+            while (i < sorted.length && sorted[i] < upperMs * 1000) {
+                inBucket++;
+                i++;
+            }
+            if (inBucket > 0) {
+                buckets.put(upperMs == 1 ? "<1 ms" : lowerMs + "-" + upperMs + " ms", inBucket);
+            }
+            upperMs *= 2;
+        }
+        return buckets;
+    }
+
+    /** One-line summary used in console reports. */
+    public String summary() {
+        return String.format(Locale.ROOT, "%-40s n=%-6d err=%-5d (%.1f%%) p50=%.0fms p90=%.0fms p95=%.0fms p99=%.0fms max=%.0fms",
+                name, count(), errorCount(), errorRate() * 100,
+                percentileMs(50), percentileMs(90), percentileMs(95), percentileMs(99), maxMs());
+    }
+
+    private synchronized long[] sortedSamples() {
+        long[] copy = Arrays.copyOf(samplesUs, count);
+        Arrays.sort(copy);
+        return copy;
+    }
+}
@@ -0,0 +1,218 @@
+package com.qa.utils;
+
+import jakarta.mail.MessagingException;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import jakarta.mail.util.SharedFileInputStream;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Durable on-disk outbox for outgoing mail (email.outbox.dir, cached across CI runs).
+ * A message is written as &lt;id&gt;.eml (atomically, so a crash never leaves half a message) before any
+ * SMTP attempt; it is deleted only after the server accepted it. Failed attempts are recorded in
+ * &lt;id&gt;.eml.state and retried with exponential backoff and jitter (email.outbox.backoffSec doubling up to
+ * email.outbox.maxBackoffMin); after email.outbox.maxAttempts the message moves to failed/.
+ * Messages left over from earlier runs are drained at the next start.
+ * {@code drainAsync(Duration.ZERO)} makes one attempt per message that is due, without waiting for retries.
+ */
+public final class MailOutbox {
+
+    private static final Properties CONFIG = new ConfigManager().getConfigProps();
+    private static final String EML = ".eml";
+    private static final String STATE = ".state";
+    private static final String FAILED = "failed";
+    private static final Object DRAIN_LOCK = new Object();
+
+    private MailOutbox() {
+        throw new UnsupportedOperationException("Utility class - instantiation not allowed");
+    }
+
+    /** Writes the message to the outbox; from here on it survives a crash or an SMTP outage. */
+    public static Path enqueue(MimeMessage message) throws IOException, MessagingException {
+        Path dir = dir();
+        Files.createDirectories(dir);
+        String id = System.currentTimeMillis() + "-" + UUID.randomUUID().toString().substring(0, 8);
+        Path tmp = dir.resolve(id + EML + ".tmp");
+        try (OutputStream out = Files.newOutputStream(tmp)) {
+            message.writeTo(out);
+        }
+        Path eml = dir.resolve(id + EML);
+        Files.move(tmp, eml, StandardCopyOption.ATOMIC_MOVE);
+        TestUtils.log().info("Email queued in outbox: {} ({} KB)", eml.getFileName(), Files.size(eml) / 1024);
+        return eml;
+    }
+
+    /** True once the SMTP server accepted the queued message (not when it was given up and moved to failed/). */
+    public static boolean isDelivered(Path eml) {
+        return !Files.exists(eml) && !Files.exists(eml.resolveSibling(FAILED).resolve(eml.getFileName()));
+    }
+
+    /** Number of messages waiting for delivery. */
+    public static int pending() {
+        return queued().size();
+    }
+
+    /**
+     * Delivers queued messages in the background, retrying failures with backoff until the outbox is
+     * empty or {@code maxWait} has passed. Completes with true when nothing is left to deliver.
+     */
+    public static CompletableFuture<Boolean> drainAsync(Duration maxWait) {
+        long deadline = System.currentTimeMillis() + maxWait.toMillis();
+        CompletableFuture<Boolean> done = new CompletableFuture<>();
+        Thread t = new Thread(() -> {
+            try {
+                done.complete(drainUntil(deadline));
+            } catch (Exception e) {
+                done.completeExceptionally(e);
+            }
+        }, "mail-outbox");
+        t.setDaemon(true); // never keeps the JVM alive: undelivered mail stays queued for the next run
+        t.start();
+        return done;
+    }
+
+    private static boolean drainUntil(long deadline) throws InterruptedException {
+        synchronized (DRAIN_LOCK) {
+            while (true) {
+                List<Path> queued = queued();
+                if (queued.isEmpty()) return true;
+
+                long nextDue = Long.MAX_VALUE;
+                for (Path eml : queued) {
+                    Properties state = readState(eml);
+                    long dueAt = Long.parseLong(state.getProperty("nextAttemptAt", "0"));
+                    if (dueAt <= System.currentTimeMillis()) {
+                        if (!attempt(eml, state)) {
+                            nextDue = Math.min(nextDue, Long.parseLong(readState(eml).getProperty("nextAttemptAt", "0")));
+                        }
+                    } else {
+                        nextDue = Math.min(nextDue, dueAt);
+                    }
+                }
+                if (queued().isEmpty()) return true;
+                long sleepMs = nextDue - System.currentTimeMillis();
+                if (nextDue == Long.MAX_VALUE || System.currentTimeMillis() + Math.max(0, sleepMs) > deadline) {
+                    TestUtils.log().warn("{} email(s) still in the outbox ({}), retried on the next run", pending(), dir().toAbsolutePath());
+                    return false;
+                }
+                TimeUnit.MILLISECONDS.sleep(Math.max(0, sleepMs));
+            }
+        }
+    }
+
+    /** One SMTP attempt; returns true when the message was delivered (or given up on). */
+    private static boolean attempt(Path eml, Properties state) {
+        int attempts = Integer.parseInt(state.getProperty("attempts", "0")) + 1;
+        long start = System.nanoTime();
+        // Shared file stream: the parts (report ZIP, images) are read from disk while sending, not loaded into memory
+        try (SharedFileInputStream in = new SharedFileInputStream(eml.toFile())) {
+            MimeMessage message = new MimeMessage(EmailManager.smtpSession(), in);
+            Transport.send(message);
+            Files.deleteIfExists(stateFile(eml));
+            Files.delete(eml);
+            TestUtils.log().info("Outbox email {} delivered in {} ms (attempt {})",
+                    eml.getFileName(), (System.nanoTime() - start) / 1_000_000, attempts);
+            return true;
+        } catch (Exception e) {
+            int maxAttempts = intProp("email.outbox.maxAttempts", 8);
+            if (attempts >= maxAttempts) {
+                moveToFailed(eml);
+                TestUtils.log().fatal("Outbox email {} given up after {} attempts: {}", eml.getFileName(), attempts, e.toString());
+                return true;
+            }
+            long backoffMs = backoffMs(attempts);
+            state.setProperty("attempts", String.valueOf(attempts));
+            state.setProperty("nextAttemptAt", String.valueOf(System.currentTimeMillis() + backoffMs));
+            state.setProperty("lastError", String.valueOf(e.getMessage()));
+            writeState(eml, state);
+            TestUtils.log().warn("Outbox email {} not delivered (attempt {}/{}), retry in {} s: {}",
+                    eml.getFileName(), attempts, maxAttempts, backoffMs / 1000, e.toString());
+            return false;
+        }
+    }
+
+    /** base * 2^(attempt-1), capped, with +-20 % jitter so retries of several runners do not align. */
+    private static long backoffMs(int attempt) {
+        long base = TimeUnit.SECONDS.toMillis(intProp("email.outbox.backoffSec", 5));
+        long cap = TimeUnit.MINUTES.toMillis(intProp("email.outbox.maxBackoffMin", 30));
+        long backoff = Math.min(cap, base << Math.min(attempt - 1, 20));
+        return (long) (backoff * ThreadLocalRandom.current().nextDouble(0.8, 1.2));
+    }
+
+    private static List<Path> queued() {
+        Path dir = dir();
+        if (!Files.isDirectory(dir)) return List.of();
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.getFileName().toString().endsWith(EML)).sorted().toList();
+        } catch (IOException e) {
+            TestUtils.log().warn("Cannot list outbox {}: {}", dir, e.getMessage());
+            return List.of();
+        }
+    }
+
+    private static Properties readState(Path eml) {
+        Properties state = new Properties();
+        Path file = stateFile(eml);
+        if (Files.exists(file)) {
+            try (Reader r = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                state.load(r);
+            } catch (IOException e) {
+                TestUtils.log().warn("Unreadable outbox state {}: {}", file.getFileName(), e.getMessage());
+            }
+        }
+        return state;
+    }
+
+    private static void writeState(Path eml, Properties state) {
+        try (Writer w = Files.newBufferedWriter(stateFile(eml), StandardCharsets.UTF_8)) {
+            state.store(w, "Delivery state of " + eml.getFileName());
+        } catch (IOException e) {
+            TestUtils.log().warn("Cannot write outbox state for {}: {}", eml.getFileName(), e.getMessage());
+        }
+    }
+
+    private static void moveToFailed(Path eml) {
+        try {
+            Path failed = dir().resolve(FAILED);
+            Files.createDirectories(failed);
+            Files.move(eml, failed.resolve(eml.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+            Path state = stateFile(eml);
+            if (Files.exists(state)) {
+                Files.move(state, failed.resolve(state.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            TestUtils.log().warn("Cannot move {} to failed/: {}", eml.getFileName(), e.getMessage());
+        }
+    }
+
+    private static Path stateFile(Path eml) {
+        return eml.resolveSibling(eml.getFileName() + STATE);
+    }
+
+    private static Path dir() {
+        return Paths.get(CONFIG.getProperty("email.outbox.dir", ".cache/outbox").trim());
+    }
+
+    private static int intProp(String key, int def) {
+        try {
+            return Integer.parseInt(CONFIG.getProperty(key, String.valueOf(def)).trim());
+        } catch (NumberFormatException e) {
+            return def;
+        }
+    }
+}
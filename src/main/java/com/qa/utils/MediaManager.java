@@ -7,18 +7,19 @@ import org.openqa.selenium.WebDriver;
 
 public class MediaManager {
 
-    private static byte[] screenshotBytes;
+    // Per worker thread so parallel scenarios never see each other's screenshots
+    private static final ThreadLocal<byte[]> screenshotBytes = new ThreadLocal<>();
 
     private MediaManager() {
         throw new UnsupportedOperationException("Utility class - instantiation not allowed");
     }
 
     public static byte[] getScreenshotBytes() {
-        return screenshotBytes;
+        return screenshotBytes.get();
     }
 
     /**
-     * Capture screenshot from current driver and store in static variable.
+     * Capture screenshot from current driver and store it for the current thread.
      * Also returns the bytes so caller can use immediately.
      */
     public static byte[] captureScreenshot() {
@@ -36,7 +37,7 @@ public class MediaManager {
 
         try {
             byte[] screenshot = ((TakesScreenshot) driver).getScreenshotAs(OutputType.BYTES);
-            screenshotBytes = screenshot;
+            screenshotBytes.set(screenshot);
             TestUtils.log().info("Screenshot captured.");
             return screenshot;
         } catch (Exception e) {
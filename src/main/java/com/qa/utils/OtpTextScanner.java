@@ -0,0 +1,167 @@
+package com.qa.utils;
+
+import jakarta.mail.Multipart;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Part;
+import jakarta.mail.internet.ContentType;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Finds the OTP in a mail without downloading the whole message.
+ * Only text/plain (preferred) or text/html parts are read, located from the BODYSTRUCTURE; images and
+ * attachments are never touched. A part is streamed and transfer-decoded in small chunks (IMAP partial
+ * fetch, mail.imaps.fetchsize) and reading stops at the first code, or at the cap when the last code wins.
+ * Code shape: OTP_LENGTH digits when configured, otherwise 4 to 8 digits.
+ */
+final class OtpTextScanner {
+
+    /** The code and the text read up to it (used to tell whose mail it is). */
+    record Hit(String otp, String text) {}
+
+    private static final int MAX_TEXT_CHARS = 64 * 1024;
+    private static final int CHUNK_CHARS = 2048;
+
+    private final Pattern pattern;
+    private final boolean preferLast;
+
+    OtpTextScanner(String otpLength, String preferLast) {
+        int length = parseLength(otpLength);
+        this.pattern = length > 0
+                ? Pattern.compile("(?<!\\d)(\\d{" + length + "})(?!\\d)")
+                : Pattern.compile("(\\d{4,8})");
+        this.preferLast = Boolean.parseBoolean(preferLast == null ? "false" : preferLast.trim());
+    }
+
+    /** OTP from the message's text parts, plain text first. */
+    Optional<Hit> scan(Part message) throws MessagingException, IOException {
+        List<Part> plain = new ArrayList<>();
+        List<Part> html = new ArrayList<>();
+        collectTextParts(message, plain, html);
+        for (Part part : plain) {
+            Optional<Hit> hit = scanPart(part, false);
+            if (hit.isPresent()) return hit;
+        }
+        for (Part part : html) {
+            Optional<Hit> hit = scanPart(part, true);
+            if (hit.isPresent()) return hit;
+        }
+        return Optional.empty();
+    }
+
+    /** Walks the MIME structure (BODYSTRUCTURE for IMAP messages, no body download). */
+    private static void collectTextParts(Part part, List<Part> plain, List<Part> html)
+            throws MessagingException, IOException {
+        if (Part.ATTACHMENT.equalsIgnoreCase(part.getDisposition())) return;
+        if (part.isMimeType("text/plain")) {
+            plain.add(part);
+        } else if (part.isMimeType("text/html")) {
+            html.add(part);
+        } else if (part.isMimeType("multipart/*")) {
+            Multipart multipart = (Multipart) part.getContent();
+            for (int i = 0; i < multipart.getCount(); i++) {
+                collectTextParts(multipart.getBodyPart(i), plain, html);
+            }
+        }
+    }
+
+    private Optional<Hit> scanPart(Part part, boolean isHtml) throws MessagingException, IOException {
+        StringBuilder text = new StringBuilder();
+        HtmlTextFilter filter = isHtml ? new HtmlTextFilter() : null;
+        String found = null;
+        int from = 0;
+        char[] chunk = new char[CHUNK_CHARS];
+
+        try (InputStream in = part.getInputStream();
+             Reader reader = new InputStreamReader(in, charsetOf(part))) {
+            boolean eof = false;
+            while (!eof && text.length() < MAX_TEXT_CHARS) {
+                int n = reader.read(chunk);
+                eof = n < 0;
+                if (n > 0) {
+                    if (filter != null) filter.append(chunk, n, text);
+                    else text.append(chunk, 0, n);
+                }
+                boolean complete = eof || text.length() >= MAX_TEXT_CHARS;
+
+                Matcher m = pattern.matcher(text);
+                while (m.find(from)) {
+                    // A code touching the end of what was read so far may continue in the next chunk
+                    if (m.end() == text.length() && !complete) break;
+                    found = m.group(1);
+                    from = m.end();
+                    if (!preferLast) return Optional.of(new Hit(found, text.toString()));
+                }
+            }
+        }
+        return found == null ? Optional.empty() : Optional.of(new Hit(found, text.toString()));
+    }
+
+    private static Charset charsetOf(Part part) {
+        try {
+            String charset = new ContentType(part.getContentType()).getParameter("charset");
+            if (charset != null) return Charset.forName(charset.trim());
+        } catch (Exception ignore) { }
+        return StandardCharsets.UTF_8;
+    }
+
+    private static int parseLength(String otpLength) {
+        try {
+            return otpLength == null || otpLength.isBlank() ? 0 : Integer.parseInt(otpLength.trim());
+        } catch (NumberFormatException e) {
+            TestUtils.log().warn("Invalid OTP length '{}', accepting 4 to 8 digits", otpLength);
+            return 0;
+        }
+    }
+
+    /**
+     * Streaming tag stripper: drops markup and the content of style/script elements, so colour codes
+     * and tracking ids in CSS or scripts are never taken for a code. Each tag becomes a space.
+     */
+    private static final class HtmlTextFilter {
+        private final StringBuilder tag = new StringBuilder();
+        private boolean inTag;
+        private String skipUntil;
+
+        void append(char[] chars, int n, StringBuilder out) {
+            for (int i = 0; i < n; i++) {
+                char c = chars[i];
+                if (inTag) {
+                    if (c == '>') {
+                        inTag = false;
+                        endTag(tag.toString().trim().toLowerCase(Locale.ROOT));
+                        tag.setLength(0);
+                    } else if (tag.length() < 16) {
+                        tag.append(c);
+                    }
+                } else if (c == '<') {
+                    inTag = true;
+                    if (skipUntil == null) out.append(' ');
+                } else if (skipUntil == null) {
+                    out.append(c);
+                }
+            }
+        }
+
+        private void endTag(String name) {
+            if (skipUntil != null) {
+                if (name.startsWith(skipUntil)) skipUntil = null;
+            } else if (name.startsWith("style")) {
+                skipUntil = "/style";
+            } else if (name.startsWith("script")) {
+                skipUntil = "/script";
+            }
+        }
+    }
+}
@@ -0,0 +1,336 @@
+package com.qa.utils;
+
+import jakarta.activation.DataHandler;
+import jakarta.activation.FileDataSource;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Multipart;
+import jakarta.mail.internet.MimeBodyPart;
+import jakarta.mail.internet.MimeMultipart;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Builds a compact outcome email instead of attaching the report and every screenshot as separate parts:
+ * - an inline HTML summary (the configured body, the failed scenarios, and a few downscaled screenshot
+ *   thumbnails referenced by cid)
+ * - one ZIP with the full artifacts (Spark report first, then screenshots newest first), streamed to a temp file
+ * - email.attachmentBudgetMb caps the encoded size of thumbnails + ZIP; artifacts that do not fit are left
+ *   out (and listed in the summary) rather than making the mail too big to be delivered
+ * Nothing is held in memory as a whole: files are copied into the ZIP as streams, thumbnails are decoded
+ * subsampled one at a time, and the MIME parts are file-backed until the message is written out.
+ */
+public final class OutcomeEmailBuilder {
+
+    /** The MIME content to send and the temp files behind it (deleted on close, once the message is written). */
+    public record OutcomeEmail(Multipart content, List<Path> tempFiles) implements AutoCloseable {
+        @Override
+        public void close() {
+            for (Path file : tempFiles) {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    TestUtils.log().warn("Cannot delete temp file {}: {}", file, e.getMessage());
+                }
+            }
+        }
+    }
+
+    private static final Properties CONFIG = new ConfigManager().getConfigProps();
+    private static final Path WORK_DIR = Paths.get("target", "mail");
+    private static final String ZIP_NAME = "test-artifacts.zip";
+    // Base64 turns 3 bytes into 4, plus line breaks
+    private static final double ENCODED_RATIO = 1.37;
+    private static final long ZIP_ENTRY_OVERHEAD = 128;
+
+    private OutcomeEmailBuilder() {
+        throw new UnsupportedOperationException("Utility class - instantiation not allowed");
+    }
+
+    /**
+     * @param bodyHtml            the greeting / outcome text (HTML)
+     * @param report              the Spark HTML report
+     * @param screenshots         screenshots of the run (may be empty)
+     * @param failedScenarioFile  Cucumber rerun file listing the failed scenarios (may be missing)
+     */
+    public static OutcomeEmail build(String bodyHtml, File report, File[] screenshots, Path failedScenarioFile)
+            throws IOException, MessagingException {
+        long budget = (long) (doubleProp("email.attachmentBudgetMb", 15) * 1024 * 1024);
+        List<File> shots = Arrays.stream(screenshots == null ? new File[0] : screenshots)
+                .filter(Objects::nonNull).filter(File::isFile)
+                .sorted(Comparator.comparingLong(File::lastModified).reversed())
+                .toList();
+
+        Files.createDirectories(WORK_DIR);
+        List<Path> tempFiles = new ArrayList<>();
+        try {
+            // Thumbnails first: they are small and what most readers look at
+            List<MimeBodyPart> inline = new ArrayList<>();
+            StringBuilder gallery = new StringBuilder();
+            long used = 0;
+            int maxThumbs = intProp("email.thumbnails.max", 6);
+            int width = intProp("email.thumbnails.widthPx", 320);
+            for (File shot : shots) {
+                if (inline.size() >= maxThumbs) break;
+                Path thumb = thumbnail(shot, width);
+                if (thumb == null) continue;
+                tempFiles.add(thumb);
+                long size = encoded(Files.size(thumb));
+                if (used + size > budget) break;
+                used += size;
+
+                String cid = "shot" + inline.size();
+                MimeBodyPart part = new MimeBodyPart();
+                part.setDataHandler(new DataHandler(new FileDataSource(thumb.toFile())));
+                part.setContentID("<" + cid + ">");
+                part.setDisposition(MimeBodyPart.INLINE);
+                part.setFileName(stripExtension(shot.getName()) + ".jpg");
+                inline.add(part);
+                gallery.append("<a title=\"").append(escape(shot.getName())).append("\">")
+                        .append("<img src=\"cid:").append(cid).append("\" width=\"").append(width)
+                        .append("\" style=\"margin:4px;border:1px solid #ccc\"></a>");
+            }
+
+            // Full artifacts in one ZIP, as far as the remaining budget allows
+            List<File> artifacts = new ArrayList<>();
+            if (report != null && report.isFile()) artifacts.add(report);
+            artifacts.addAll(shots);
+            Path zip = Files.createTempFile(WORK_DIR, "artifacts-", ".zip");
+            tempFiles.add(zip);
+            List<File> omitted = new ArrayList<>();
+            int zipped = writeZip(zip, artifacts, report, budget - used, omitted);
+
+            MimeMultipart related = new MimeMultipart("related");
+            MimeBodyPart html = new MimeBodyPart();
+            html.setContent(summaryHtml(bodyHtml, failedScenarios(failedScenarioFile), gallery, shots.size(),
+                    inline.size(), zipped, omitted, budget), "text/html; charset=UTF-8");
+            related.addBodyPart(html);
+            for (MimeBodyPart part : inline) related.addBodyPart(part);
+
+            MimeMultipart mixed = new MimeMultipart("mixed");
+            MimeBodyPart relatedPart = new MimeBodyPart();
+            relatedPart.setContent(related);
+            mixed.addBodyPart(relatedPart);
+            if (zipped > 0) {
+                MimeBodyPart attachment = new MimeBodyPart();
+                attachment.setDataHandler(new DataHandler(new FileDataSource(zip.toFile())));
+                attachment.setFileName(ZIP_NAME);
+                mixed.addBodyPart(attachment);
+            }
+
+            TestUtils.log().info("Outcome email: {} thumbnail(s), {} of {} artifact(s) zipped ({} KB), {} left out (budget {} MB)",
+                    inline.size(), zipped, artifacts.size(), Files.size(zip) / 1024, omitted.size(), budget / (1024 * 1024));
+            return new OutcomeEmail(mixed, tempFiles);
+        } catch (IOException | MessagingException | RuntimeException e) {
+            new OutcomeEmail(null, tempFiles).close();
+            throw e;
+        }
+    }
+
+    /**
+     * Streams the artifacts into the ZIP in order, skipping any whose worst-case size would exceed the budget.
+     * Screenshots are already compressed, so they are stored rather than deflated again.
+     */
+    private static int writeZip(Path zip, List<File> artifacts, File report, long budget, List<File> omitted) throws IOException {
+        int zipped = 0;
+        Set<String> names = new HashSet<>();
+        try (CountingOutputStream counter = new CountingOutputStream(Files.newOutputStream(zip));
+             ZipOutputStream out = new ZipOutputStream(counter)) {
+            for (File file : artifacts) {
+                long worstCase = counter.count() + file.length() + ZIP_ENTRY_OVERHEAD;
+                if (encoded(worstCase) > budget) {
+                    omitted.add(file);
+                    continue;
+                }
+                boolean compressed = file.getName().toLowerCase(Locale.ROOT).matches(".*\\.(png|jpe?g|gif)");
+                out.setLevel(compressed ? Deflater.NO_COMPRESSION : Deflater.DEFAULT_COMPRESSION);
+                out.putNextEntry(new ZipEntry(entryName(file, file.equals(report), names)));
+                Files.copy(file.toPath(), out);
+                out.closeEntry();
+                out.flush();
+                zipped++;
+            }
+        }
+        return zipped;
+    }
+
+    private static String entryName(File file, boolean isReport, Set<String> names) {
+        String name = (isReport ? "" : "screenshots/") + file.getName();
+        String unique = name;
+        for (int i = 2; !names.add(unique); i++) {
+            unique = i + "-" + name;
+        }
+        return unique;
+    }
+
+    /** JPEG thumbnail of a screenshot; decoded with subsampling so a full-size bitmap is never built. */
+    private static Path thumbnail(File image, int width) {
+        try (ImageInputStream in = ImageIO.createImageInputStream(image)) {
+            Iterator<ImageReader> readers = in == null ? Collections.emptyIterator() : ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) return null;
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int step = Math.max(1, reader.getWidth(0) / width);
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                BufferedImage sampled = reader.read(0, param);
+
+                int height = Math.max(1, sampled.getHeight() * width / sampled.getWidth());
+                BufferedImage thumb = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+                Graphics2D g = thumb.createGraphics();
+                try {
+                    g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                    g.drawImage(sampled, 0, 0, width, height, null);
+                } finally {
+                    g.dispose();
+                }
+                Path out = Files.createTempFile(WORK_DIR, "thumb-", ".jpg");
+                if (!ImageIO.write(thumb, "jpg", out.toFile())) {
+                    Files.deleteIfExists(out);
+                    return null;
+                }
+                return out;
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException | RuntimeException e) {
+            TestUtils.log().warn("No thumbnail for {}: {}", image.getName(), e.getMessage());
+            return null;
+        }
+    }
+
+    /** Failed scenarios from the Cucumber rerun file ("path/x.feature:12:40"), named from the feature file. */
+    private static List<String> failedScenarios(Path rerunFile) {
+        List<String> scenarios = new ArrayList<>();
+        if (rerunFile == null || !Files.isRegularFile(rerunFile)) return scenarios;
+        try {
+            for (String token : Files.readString(rerunFile, StandardCharsets.UTF_8).trim().split("\\s+")) {
+                int split = token.indexOf(".feature:");
+                if (split < 0) continue;
+                String path = token.substring(0, split + ".feature".length()).replaceFirst("^(file|classpath):", "");
+                Path feature = Paths.get(path);
+                List<String> lines = Files.isRegularFile(feature) ? Files.readAllLines(feature, StandardCharsets.UTF_8) : List.of();
+                for (String line : token.substring(split + ".feature:".length()).split(":")) {
+                    scenarios.add(feature.getFileName() + ":" + line + " " + scenarioName(lines, Integer.parseInt(line)));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            TestUtils.log().warn("Cannot read failed scenarios from {}: {}", rerunFile, e.getMessage());
+        }
+        return scenarios;
+    }
+
+    /** The Scenario title at or above the line (outline examples point at their row). */
+    private static String scenarioName(List<String> lines, int lineNo) {
+        for (int i = Math.min(lineNo, lines.size()) - 1; i >= 0; i--) {
+            String line = lines.get(i).trim();
+            if (line.startsWith("Scenario")) {
+                int colon = line.indexOf(':');
+                return colon < 0 ? line : line.substring(colon + 1).trim();
+            }
+        }
+        return "";
+    }
+
+    private static String summaryHtml(String bodyHtml, List<String> failed, CharSequence gallery, int screenshots,
+                                      int thumbnails, int zipped, List<File> omitted, long budget) {
+        StringBuilder html = new StringBuilder("<html><body style=\"font-family:Arial,sans-serif\">");
+        html.append(bodyHtml);
+        if (!failed.isEmpty()) {
+            html.append("<h3 style=\"color:#c0392b\">Failed scenarios (").append(failed.size()).append(")</h3><ul>");
+            for (String scenario : failed) {
+                html.append("<li>").append(escape(scenario)).append("</li>");
+            }
+            html.append("</ul>");
+        }
+        if (thumbnails > 0) {
+            html.append("<h3>Screenshots</h3><p>").append(thumbnails).append(" of ").append(screenshots)
+                    .append(" shown, newest first.</p>").append(gallery);
+        }
+        html.append("<p style=\"color:#666\">");
+        if (zipped > 0) {
+            html.append("Full report and screenshots: ").append(ZIP_NAME).append(" (").append(zipped).append(" file(s)).");
+        }
+        if (!omitted.isEmpty()) {
+            html.append("<br>Left out to stay under the ").append(budget / (1024 * 1024)).append(" MB email limit: ");
+            for (int i = 0; i < omitted.size(); i++) {
+                html.append(i == 0 ? "" : ", ").append(escape(omitted.get(i).getName()));
+            }
+            html.append(". They are kept with the run's reports.");
+        }
+        html.append("</p></body></html>");
+        return html.toString();
+    }
+
+    private static String escape(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+
+    private static String stripExtension(String name) {
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+
+    private static long encoded(long bytes) {
+        return (long) (bytes * ENCODED_RATIO);
+    }
+
+    private static int intProp(String key, int def) {
+        try {
+            return Integer.parseInt(CONFIG.getProperty(key, String.valueOf(def)).trim());
+        } catch (NumberFormatException e) {
+            return def;
+        }
+    }
+
+    private static double doubleProp(String key, double def) {
+        try {
+            return Double.parseDouble(CONFIG.getProperty(key, String.valueOf(def)).trim());
+        } catch (NumberFormatException e) {
+            return def;
+        }
+    }
+
+    /** Bytes written so far to the ZIP file, to check the budget before each entry. */
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        long count() {
+            return count;
+        }
+    }
+}
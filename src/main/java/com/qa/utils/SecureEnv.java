@@ -51,6 +51,17 @@ public final class SecureEnv {
         return plain;
     }
 
+    /** Encrypts runtime data (e.g. cached session state) with the same AES-GCM value key as .env.sec. */
+    public String encrypt(String plaintext) {
+        return "V|" + CryptoUtils.encryptAesGcmToB64Url(kVal, plaintext);
+    }
+
+    /** Reverses {@link #encrypt(String)}; fails if the data was tampered with or another key was used. */
+    public String decrypt(String encrypted) {
+        if (!encrypted.startsWith("V|")) throw new IllegalStateException("Not an encrypted value");
+        return CryptoUtils.decryptAesGcmFromB64Url(kVal, encrypted.substring(2));
+    }
+
     /** Helper (offline/dev tooling): generate token for a plaintext key. */
     public String tokenForPlainKey(String plainKey) {
         return "K|" + CryptoUtils.hmacSha256Hex(kKey, plainKey);
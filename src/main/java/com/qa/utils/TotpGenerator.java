@@ -0,0 +1,167 @@
+package com.qa.utils;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RFC 6238 TOTP codes computed locally for test accounts enrolled in TOTP in Keycloak
+ * (otp.provider.&lt;role&gt;=totp), so the OTP step does not wait for a mail.
+ * - seed: the Base32 secret shown when enrolling the authenticator, encrypted in .env.sec as TOTP_SEED_&lt;ROLE&gt;
+ * - policy: otp.totp.algorithm / otp.totp.periodSec / otp.totp.digits (6-8) as configured in the realm
+ * - step boundaries: a code with less than otp.totp.minValiditySec left, or one already used in its step
+ *   (Keycloak rejects reused codes by default), is replaced by the next step's code after waiting for it
+ * - clock skew: otp.totp.clockOffsetSec is added to the local clock; "auto" measures it from the
+ *   Date header of the application host (once it succeeded; a failed measurement is retried on the next code)
+ */
+public final class TotpGenerator {
+
+    private static final Properties CONFIG = new ConfigManager().getConfigProps();
+    private static final Map<String, Object> ROLE_LOCKS = new ConcurrentHashMap<>();
+    private static final Map<String, Long> LAST_STEP = new ConcurrentHashMap<>();
+    private static final int MIN_DIGITS = 6;
+    private static final int MAX_DIGITS = 8;
+    private static final int[] POW10 = {1, 10, 100, 1_000, 10_000, 100_000, 1_000_000, 10_000_000, 100_000_000};
+
+    private static volatile Long clockOffsetMs;
+
+    private TotpGenerator() {
+        throw new UnsupportedOperationException("Utility class - instantiation not allowed");
+    }
+
+    /** True when the role's OTP comes from its TOTP seed instead of the mailbox. */
+    public static boolean isSelectedFor(String role) {
+        return role != null && "totp".equalsIgnoreCase(CONFIG.getProperty("otp.provider." + role, "email").trim());
+    }
+
+    /**
+     * The code to type now for the role. Waits for the next time step (at most one period) when the
+     * current code is about to expire or was already used for this role.
+     */
+    public static String codeFor(String role) {
+        byte[] seed = seedFor(role);
+        long periodMs = TimeUnit.SECONDS.toMillis(intProp("otp.totp.periodSec", 30));
+        long minValidityMs = TimeUnit.SECONDS.toMillis(intProp("otp.totp.minValiditySec", 3));
+
+        synchronized (ROLE_LOCKS.computeIfAbsent(role, r -> new Object())) {
+            long now = now();
+            long step = now / periodMs;
+            Long lastUsed = LAST_STEP.get(role);
+            long remainingMs = (step + 1) * periodMs - now;
+            if (remainingMs < minValidityMs || (lastUsed != null && lastUsed >= step)) {
+                long target = Math.max(step + 1, lastUsed == null ? 0 : lastUsed + 1);
+                long waitMs = target * periodMs - now;
+                TestUtils.log().info("TOTP for {}: waiting {} ms for the next time step", role, waitMs);
+                sleep(waitMs);
+                step = target;
+            }
+            LAST_STEP.put(role, step);
+            String code = generate(seed, step, digits(), CONFIG.getProperty("otp.totp.algorithm", "HmacSHA1").trim());
+            TestUtils.log().info("TOTP generated for {} (step {})", role, step);
+            return code;
+        }
+    }
+
+    /** RFC 4226 HOTP value for a counter (RFC 6238: counter = unix time / period). */
+    public static String generate(byte[] seed, long counter, int digits, String algorithm) {
+        if (digits < MIN_DIGITS || digits > MAX_DIGITS) {
+            throw new IllegalArgumentException("TOTP digits must be " + MIN_DIGITS + "-" + MAX_DIGITS + ", was " + digits);
+        }
+        byte[] hash = CryptoUtils.hmac(algorithm, seed, ByteBuffer.allocate(Long.BYTES).putLong(counter).array());
+        int offset = hash[hash.length - 1] & 0x0f;
+        int binary = ((hash[offset] & 0x7f) << 24)
+                | ((hash[offset + 1] & 0xff) << 16)
+                | ((hash[offset + 2] & 0xff) << 8)
+                | (hash[offset + 3] & 0xff);
+        return String.format(Locale.ROOT, "%0" + digits + "d", binary % POW10[digits]);
+    }
+
+    private static byte[] seedFor(String role) {
+        String plainKey = "TOTP_SEED_" + role.toUpperCase(Locale.ROOT);
+        SecureEnv env = SecureConfig.get();
+        String seed = env.getByToken(env.tokenForPlainKey(plainKey));
+        if (seed == null || seed.isBlank()) {
+            throw new IllegalStateException("otp.provider." + role + "=totp but " + plainKey + " is missing in .env.sec");
+        }
+        return CryptoUtils.base32Decode(seed);
+    }
+
+    private static int digits() {
+        int digits = intProp("otp.totp.digits", MIN_DIGITS);
+        if (digits < MIN_DIGITS || digits > MAX_DIGITS) {
+            throw new IllegalStateException("otp.totp.digits must be " + MIN_DIGITS + "-" + MAX_DIGITS + ", was " + digits);
+        }
+        return digits;
+    }
+
+    private static long now() {
+        return System.currentTimeMillis() + clockOffsetMs();
+    }
+
+    private static long clockOffsetMs() {
+        Long offset = clockOffsetMs;
+        if (offset == null) {
+            String configured = CONFIG.getProperty("otp.totp.clockOffsetSec", "0").trim();
+            offset = "auto".equalsIgnoreCase(configured)
+                    ? measureServerOffsetMs()
+                    : TimeUnit.SECONDS.toMillis(Long.parseLong(configured));
+            if (offset == null) return 0; // not cached: measured again for the next code
+            clockOffsetMs = offset;
+        }
+        return offset;
+    }
+
+    /**
+     * Server clock minus local clock, from the HTTP Date header (second precision, so +500 ms to centre it);
+     * null when it could not be measured.
+     */
+    private static Long measureServerOffsetMs() {
+        try {
+            HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+            HttpRequest head = HttpRequest.newBuilder(URI.create(SecureConfig.value(SecKeys.AMFIAPPLICATIONBASEURL)))
+                    .timeout(Duration.ofSeconds(10))
+                    .method("HEAD", HttpRequest.BodyPublishers.noBody())
+                    .build();
+            long sent = System.currentTimeMillis();
+            HttpResponse<Void> response = client.send(head, HttpResponse.BodyHandlers.discarding());
+            long received = System.currentTimeMillis();
+            String date = response.headers().firstValue("date").orElseThrow();
+            long server = ZonedDateTime.parse(date, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli() + 500;
+            long offset = server - (sent + received) / 2;
+            TestUtils.log().info("TOTP clock offset to the server: {} ms", offset);
+            return offset;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (Exception e) {
+            TestUtils.log().warn("Could not measure the server clock offset, using the local clock: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private static int intProp(String key, int def) {
+        try {
+            return Integer.parseInt(CONFIG.getProperty(key, String.valueOf(def)).trim());
+        } catch (NumberFormatException e) {
+            return def;
+        }
+    }
+
+    private static void sleep(long ms) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(Math.max(0, ms));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.qa.utils;
+
+import java.util.List;
+
+/**
+ * Ordinary least squares fit of a series against its sample index (0..n-1).
+ * Used by soak mode to decide whether a metric grows steadily per iteration.
+ */
+public final class TrendFit {
+
+    private TrendFit() {
+        throw new UnsupportedOperationException("Utility class - instantiation not allowed");
+    }
+
+    /**
+     * @param slope     growth per sample
+     * @param rSquared  goodness of fit (0..1); close to 1 means the growth is steady rather than noise
+     */
+    public record Result(double slope, double intercept, double rSquared, int samples) {}
+
+    public static Result fit(List<Double> values) {
+        int n = values.size();
+        if (n < 2) {
+            return new Result(0, n == 1 ? values.get(0) : 0, 0, n);
+        }
+        double sumX = 0, sumY = 0, sumXY = 0, sumXX = 0;
+        for (int i = 0; i < n; i++) {
+            double y = values.get(i);
+            sumX += i;
+            sumY += y;
+            sumXY += i * y;
+            sumXX += (double) i * i;
+        }
+        double meanX = sumX / n;
+        double meanY = sumY / n;
+        double denom = sumXX - n * meanX * meanX;
+        double slope = denom == 0 ? 0 : (sumXY - n * meanX * meanY) / denom;
+        double intercept = meanY - slope * meanX;
+
+        double ssTot = 0, ssRes = 0;
+        for (int i = 0; i < n; i++) {
+            double y = values.get(i);
+            double predicted = intercept + slope * i;
+            ssTot += (y - meanY) * (y - meanY);
+            ssRes += (y - predicted) * (y - predicted);
+        }
+        double rSquared = ssTot == 0 ? 0 : 1 - ssRes / ssTot;
+        return new Result(slope, intercept, rSquared, n);
+    }
+}
@@ -2,12 +2,18 @@ package com.qa.hooks;
 
 import com.qa.common.DevToolsManager;
 import com.qa.common.DriverManager;
+import com.qa.common.EmulationProfiles;
+import com.qa.common.NavigationTimings;
+import com.qa.common.OidcSessionLogin;
 import com.qa.common.SessionManager;
+import com.qa.common.SessionPool;
+import com.qa.common.SessionSnapshots;
 import com.qa.pages.LoginPage;
 import com.qa.utils.*;
 import io.cucumber.java.After;
 import io.cucumber.java.AfterAll;
 import io.cucumber.java.Before;
+import io.cucumber.java.BeforeAll;
 import io.cucumber.java.Scenario;
 import org.openqa.selenium.By;
 import org.openqa.selenium.WebDriver;
@@ -17,6 +23,7 @@ import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Base64;
+import java.util.List;
 import java.util.Optional;
 import java.util.Properties;
 import java.util.stream.Stream;
@@ -27,24 +34,36 @@ public class ProjectHooks {
 	private WebDriver driver;
 	private String scenarioName;
 	private String currentRole;
-
-	public static String dynamicDataFileName;
     private final ConfigManager config = new ConfigManager();
 
+	// Once per run: with parallel workers, per-scenario cleanups would delete the same folders concurrently
+	@BeforeAll
+	public static void cleanOldReports() {
+		ReportCleaner.cleanOldReportFolders();
+	}
+
 	@Before(order = 0)
 	public void getProperty() {
 		prop.putAll(config.getConfigProps());
-        ReportCleaner.cleanOldReportFolders();
         SecureConfig.init();
     }
 
 	@Before(order = 1)
 	public void beforeScenario(Scenario scenario) {
 		scenarioName = scenario.getName();
-		currentRole = extractUserRoleFromScenarioName(scenarioName);
+		currentRole = SessionManager.roleFromScenarioName(scenarioName);
 
-		dynamicDataFileName = generateFileNameFromFeatureTitle(scenario);
-		System.out.println("JSON Test Data File: " + dynamicDataFileName);
+		System.out.println("JSON Test Data File: " + generateFileNameFromFeatureTitle(scenario));
+
+		boolean roleSwitched = SessionManager.isRoleSwitch(currentRole);
+		boolean resumedFromPool = false;
+		if (SessionPool.isEnabled() && roleSwitched && !SessionManager.isFirstScenario()) {
+			// Park the previous role's browser if still logged in, resume this role's browser if one is parked
+			// (@freshLogin scenarios must log in themselves)
+			SessionPool.park(SessionManager.getCurrentRole(),
+					!SessionManager.shouldReLogin() && !SessionManager.isAlreadyLoggedOut());
+			resumedFromPool = !scenario.getSourceTagNames().contains("@freshLogin") && SessionPool.lease(currentRole);
+		}
 
 		if (DriverManager.getDriver() == null) {
 			driver = new DriverManager().initializeBrowser(
@@ -54,12 +73,23 @@ public class ProjectHooks {
 		} else {
 			driver = DriverManager.getDriver();
 		}
+		EmulationProfiles.applyForScenario(scenario.getSourceTagNames());
+		SessionSnapshots.forScenario(scenario.getSourceTagNames());
 
-		boolean roleSwitched = SessionManager.isRoleSwitch(currentRole);
-		boolean shouldLogin = SessionManager.isFirstScenario() || SessionManager.shouldReLogin() || roleSwitched;
+		if (resumedFromPool) {
+			SessionManager.setCurrentRole(currentRole);
+			SessionManager.resetReLoginFlag();
+			SessionManager.resetLoggedOutFlag();
+			System.out.println("Resuming pooled session as " + currentRole + " without re-login");
+			return;
+		}
+
+		boolean shouldLogin = SessionManager.isFirstScenario() || SessionManager.shouldReLogin() || roleSwitched
+				|| SessionManager.isAlreadyLoggedOut();
 
 		if (shouldLogin) {
-			if (!SessionManager.isFirstScenario() && roleSwitched && !SessionManager.isAlreadyLoggedOut()) {
+			if (!SessionManager.isFirstScenario() && roleSwitched && !SessionManager.isAlreadyLoggedOut()
+					&& !SessionPool.isEnabled()) {
 				System.out.println("Logging out as previous role");
 				tryLogout();
 			}
@@ -67,7 +97,14 @@ public class ProjectHooks {
 			SessionManager.resetReLoginFlag();
 			SessionManager.markFirstScenarioCompleted();
 			SessionManager.resetLoggedOutFlag();
-            new LoginPage().getRole(SessionManager.getCurrentRole());
+            LoginPage loginPage = new LoginPage();
+            loginPage.getRole(SessionManager.getCurrentRole());
+			if (OidcSessionLogin.isSelectedFor(scenario.getSourceTagNames())
+					&& !OidcSessionLogin.login(currentRole)) {
+				// Token login failed: the scenario skips the login form, so log in through the UI here
+				System.out.println("Token login as " + currentRole + " failed, logging in through the UI");
+				loginPage.ensureLoggedIn();
+			}
 		} else {
 			System.out.println("Continuing session as " + currentRole + " without re-login");
 		}
@@ -75,7 +112,14 @@ public class ProjectHooks {
 
     @After(order = 1)
     public void tearDown(Scenario scenario) {
-        String screenshotName = scenario.getName().replaceAll(" ", "_");
+        List<NavigationTimings.Entry> navigations = NavigationTimings.drain();
+        if (!navigations.isEmpty()) {
+            scenario.log("Emulation profile: " + EmulationProfiles.activeProfile()
+                    + " | Navigation timings: " + NavigationTimings.summarize(navigations));
+        }
+
+        // Line suffix: outline rows share a name and may fail at the same time on different workers
+        String screenshotName = scenario.getName().replaceAll(" ", "_") + "_L" + scenario.getLine();
 
         if (scenario.isFailed()) {
             // Use your reusable utility
@@ -99,6 +143,8 @@ public class ProjectHooks {
 
     @After(order = 0)
 	public void cleanupAfterScenario() {
+		// An OTP wait armed by a login that failed or had no OTP step must not keep watching the inbox
+		LoginPage.cancelPendingOtp();
 		if (SessionManager.shouldReLogin()) {
 			tryLogout();
 		}
@@ -106,7 +152,8 @@ public class ProjectHooks {
 
 	@AfterAll
 	public static void saveAllApiLogsAndQuitBrowser() {
-		DriverManager.quitDriver();
+		SessionPool.quitAll();
+		DriverManager.quitAllDrivers();
         DevToolsManager.clearDevTools();
 	}
 
@@ -125,19 +172,6 @@ public class ProjectHooks {
 		SessionManager.markLoggedOut();
 	}
 
-	private String extractUserRoleFromScenarioName(String name) {
-		name = name.toLowerCase();
-		if (name.contains("admin")) return "admin";
-		if (name.contains("trainer")) return "trainer";
-		if (name.contains("beneficiary")) return "beneficiary";
-		if (name.contains("superadmin") || name.contains("super admin")) return "superadmin";
-		if (name.contains("contentmanager") || name.contains("content manager")) return "contentmanager";
-		if (name.contains("complianceofficer") || name.contains("compliance officer")) return "complianceofficer";
-        if (name.contains("traininggency") || name.contains("training agency")) return "traininggency";
-
-		return "default";
-	}
-
 	private String generateFileNameFromFeatureTitle(Scenario scenario) {
 		String featureTitle = getFeatureTitleFromScenario(scenario);
 		String pascalCaseEntity = extractEntityNameFromFeatureTitle(featureTitle);
@@ -1,15 +1,29 @@
 package com.qa.pages;
 
+import com.qa.common.SessionManager;
+import com.qa.common.SessionSnapshots;
 import com.qa.utils.BasePage;
+import com.qa.utils.ConfigManager;
 import com.qa.utils.EmailManager;
+import com.qa.utils.TestUtils;
+import com.qa.utils.TotpGenerator;
 import com.qa.utils.Waits;
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
 import org.openqa.selenium.WebElement;
 import org.openqa.selenium.support.FindBy;
 import org.openqa.selenium.support.How;
 
+import java.util.concurrent.CompletableFuture;
+
 public class LoginPage extends BasePage {
 
-    private static String role;
+    // Per thread so concurrent users (load mode / parallel workers) keep their own role
+    private static final ThreadLocal<String> role = new ThreadLocal<>();
+    private static final ThreadLocal<CompletableFuture<String>> pendingOtp = new ThreadLocal<>();
+    private static final long LOGGED_IN_PROBE_SEC = 5;
+    private static final boolean ARM_OTP_BEFORE_SUBMIT = Boolean.parseBoolean(
+            new ConfigManager().getConfigProps().getProperty("otp.armBeforeSubmit", "false").trim());
 
     @FindBy(how = How.ID, using = "kc-page-title")
     private WebElement loginPageTitle;
@@ -45,19 +59,19 @@ public class LoginPage extends BasePage {
     private WebElement menuIconExpander;
 
     public void getRole(String roleName){
-        role = roleName;
+        role.set(roleName);
     }
 
     public void navigateToApplication(){
-        navigate(role);
+        navigate(role.get());
     }
 
     public void enterUsername() {
-        sendKeys(usernameTextField, getUsername(role), "Username entered");
+        sendKeys(usernameTextField, getUsername(role.get()), "Username entered");
     }
 
     public void enterPassword() {
-        sendKeys(passwordTextField, getPassword(role), "Password entered");
+        sendKeys(passwordTextField, getPassword(role.get()), "Password entered");
     }
 
     public void enterOTP(String otpStatus) {
@@ -65,15 +79,40 @@ public class LoginPage extends BasePage {
         if(otpStatus.equalsIgnoreCase("invalid")) {
             otp="0000";
         }else {
-            otp = EmailManager.readOtpFromInbox();
+            otp = takeOtp();
         }
         sendKeys(otpTextField, otp, "OTP entered as " + otp);
     }
 
+    /**
+     * With otp.armBeforeSubmit=true (flows that have an OTP step), the OTP mail is armed for on the credentials
+     * form before submitting, so the inbox watch overlaps the page change.
+     */
     public void clickLoginButton() {
+        if (ARM_OTP_BEFORE_SUBMIT && !TotpGenerator.isSelectedFor(role.get())
+                && !driver.findElements(By.id("password")).isEmpty()) {
+            cancelPendingOtp();
+            pendingOtp.set(EmailManager.armOtpWait(role.get()));
+        }
         click(loginButton, "Login button clicked");
     }
 
+    private String takeOtp() {
+        if (TotpGenerator.isSelectedFor(role.get())) {
+            return TotpGenerator.codeFor(role.get());
+        }
+        CompletableFuture<String> armed = pendingOtp.get();
+        pendingOtp.remove();
+        return armed != null ? EmailManager.awaitOtp(armed) : EmailManager.readOtpFromInbox();
+    }
+
+    /** Drops an armed OTP wait that is not needed (login completed without an OTP step). */
+    public static void cancelPendingOtp() {
+        CompletableFuture<String> armed = pendingOtp.get();
+        pendingOtp.remove();
+        if (armed != null) armed.cancel(true);
+    }
+
     public void clickSubmitButton() {
         click(submitButton, "Submit button clicked");
     }
@@ -87,11 +126,67 @@ public class LoginPage extends BasePage {
     public void clickOnLogout() {
         click(settingIcon, "Setting icon clicked");
         click(logoutButton, "Logout button clicked");
+        SessionManager.markLoggedOut(); // the browser must not be pooled or reused as logged in
     }
 
     public boolean validateSmokeTest(){
         new Waits().staticWait();
-        return isElementDisplayed(settingIcon);
+        boolean loggedIn = isElementDisplayed(settingIcon);
+        if (loggedIn) {
+            cancelPendingOtp();
+            SessionSnapshots.save(role.get(), driver);
+        }
+        return loggedIn;
+    }
+
+    /**
+     * Cheap check that the portal shows a logged-in page: no Keycloak login form and the settings icon appears.
+     */
+    public boolean isLoggedIn() {
+        try {
+            Object onLoginForm = ((JavascriptExecutor) driver).executeScript("return !!document.getElementById('kc-login');");
+            if (Boolean.TRUE.equals(onLoginForm)) return false;
+            new Waits().waitForVisibilityOfElement(settingIcon, LOGGED_IN_PROBE_SEC);
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * Opens the portal logged in as the current role: keeps an active session, else restores the
+     * role's session snapshot (unless @freshLogin), else logs in through the UI (with OTP if asked).
+     */
+    public void ensureLoggedIn() {
+        navigateToApplication();
+        if (isLoggedIn()) {
+            TestUtils.log().info("Already logged in as {}", role.get());
+            return;
+        }
+        if (SessionSnapshots.restore(role.get())) {
+            navigateToApplication();
+            boolean restored = isLoggedIn();
+            SessionSnapshots.endRestore();
+            if (restored) {
+                TestUtils.log().info("Logged in as {} from session snapshot", role.get());
+                return;
+            }
+            TestUtils.log().info("Session snapshot for {} rejected by the portal, logging in", role.get());
+            SessionSnapshots.discard(role.get());
+            navigateToApplication();
+        }
+        enterUsername();
+        enterPassword();
+        clickLoginButton();
+        if (!driver.findElements(By.id("code")).isEmpty()) {
+            enterOTP("valid");
+            clickLoginButton();
+        } else {
+            cancelPendingOtp();
+        }
+        if (!validateSmokeTest()) {
+            throw new IllegalStateException("Login as " + role.get() + " did not reach the portal");
+        }
     }
 
 }
@@ -0,0 +1,119 @@
+package com.qa.runner;
+
+import com.qa.common.CdpSupport;
+import com.qa.common.DriverManager;
+import com.qa.common.PageLoadProbe;
+import com.qa.utils.BasePage;
+import com.qa.utils.ConfigManager;
+import com.qa.utils.SecureConfig;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.devtools.DevTools;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * Cold vs warm page-load measurement (run.mode=coldwarm).
+ * Every portal URL built by BasePage.navigate (admin, trainer, beneficiary) is loaded twice in a row:
+ * - cold: HTTP cache cleared (Network.clearBrowserCache) and origin data incl. service workers and
+ *         CacheStorage cleared (Storage.clearDataForOrigin) right before the load
+ * - warm: immediate reload of the same URL
+ * Timings and transferred bytes of both loads plus the cache effectiveness ratio
+ * (share of bytes the warm load did not have to download) are written to target/perf/cold-warm.csv.
+ */
+public class ColdWarmRunner {
+
+    private static final Properties CONFIG = new ConfigManager().getConfigProps();
+    private static final Path RESULT_FILE = Paths.get("target", "perf", "cold-warm.csv");
+
+    private record Measurement(String portal, PageLoadProbe.Snapshot cold, PageLoadProbe.Snapshot warm) {
+        double byteSavings() {
+            return cold.transferredBytes() <= 0 ? 0 : 1 - (double) warm.transferredBytes() / cold.transferredBytes();
+        }
+
+        double loadTimeRatio() {
+            return cold.pageLoadMs() <= 0 ? 0 : warm.pageLoadMs() / cold.pageLoadMs();
+        }
+    }
+
+    private final List<Measurement> results = new ArrayList<>();
+
+    @BeforeClass(alwaysRun = true)
+    public void startBrowser() {
+        SecureConfig.init();
+        new DriverManager().initializeBrowser(CONFIG.getProperty("browser"), CONFIG.getProperty("headlessMode"));
+        if (DriverManager.getDevTools() == null) {
+            throw new IllegalStateException("Cold/warm measurement needs a CDP capable browser (chrome or edge).");
+        }
+    }
+
+    @DataProvider
+    public Object[][] portals() {
+        return new Object[][]{{"admin"}, {"trainer"}, {"beneficiary"}};
+    }
+
+    @Test(description = "Cold vs warm load of a portal", dataProvider = "portals")
+    public void measurePortal(String role) {
+        String url = BasePage.portalUrl(role);
+        WebDriver driver = DriverManager.getDriver();
+
+        driver.navigate().to("about:blank");
+        clearCacheAndOriginData(url);
+        PageLoadProbe.Snapshot cold = load(url);
+
+        driver.navigate().to("about:blank");
+        PageLoadProbe.Snapshot warm = load(url);
+
+        Measurement m = new Measurement(role, cold, warm);
+        results.add(m);
+        System.out.printf("%s: cold %.0f ms / %d B, warm %.0f ms / %d B -> bytes saved %.1f%%, load time ratio %.2f%n",
+                role, cold.pageLoadMs(), cold.transferredBytes(), warm.pageLoadMs(), warm.transferredBytes(),
+                m.byteSavings() * 100, m.loadTimeRatio());
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void writeResultsAndQuit() {
+        DriverManager.quitDriver();
+
+        StringBuilder csv = new StringBuilder("portal,coldLoadMs,coldTtfbMs,coldBytes,warmLoadMs,warmTtfbMs,warmBytes,"
+                + "byteSavingsPct,loadTimeRatio\n");
+        for (Measurement m : results) {
+            csv.append(String.format(Locale.ROOT, "%s,%.0f,%.0f,%d,%.0f,%.0f,%d,%.1f,%.3f%n", m.portal(),
+                    m.cold().pageLoadMs(), m.cold().ttfbMs(), m.cold().transferredBytes(),
+                    m.warm().pageLoadMs(), m.warm().ttfbMs(), m.warm().transferredBytes(),
+                    m.byteSavings() * 100, m.loadTimeRatio()));
+        }
+        try {
+            Files.createDirectories(RESULT_FILE.getParent());
+            Files.writeString(RESULT_FILE, csv);
+            System.out.println("Cold/warm results written to: " + RESULT_FILE.toAbsolutePath());
+        } catch (IOException e) {
+            System.err.println("Failed to write cold/warm results: " + e.getMessage());
+        }
+    }
+
+    private PageLoadProbe.Snapshot load(String url) {
+        DriverManager.checkNavigationHealth(url);
+        PageLoadProbe.Snapshot snapshot = PageLoadProbe.last();
+        if (snapshot == null) {
+            throw new IllegalStateException("No page load timings captured for " + url);
+        }
+        return snapshot;
+    }
+
+    private void clearCacheAndOriginData(String url) {
+        DevTools devTools = DriverManager.getDevTools();
+        URI uri = URI.create(url);
+        String origin = uri.getScheme() + "://" + uri.getRawAuthority();
+        CdpSupport.send(devTools, "Network.clearBrowserCache", Map.of());
+        CdpSupport.send(devTools, "Storage.clearDataForOrigin", Map.of("origin", origin, "storageTypes", "all"));
+    }
+}
@@ -0,0 +1,184 @@
+package com.qa.runner;
+
+import com.qa.common.DriverManager;
+import com.qa.pages.LoginPage;
+import com.qa.stepdefinitions.LoginTest;
+import com.qa.utils.ConfigManager;
+import com.qa.utils.HostCapacity;
+import com.qa.utils.LatencyStats;
+import com.qa.utils.SecureConfig;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.chromium.ChromiumDriver;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Browser-based concurrent user load (run.mode=load).
+ * N real-browser users (each with its own driver on its own thread) run the login flow through the
+ * existing LoginTest step definitions and LoginPage page object, started with a linear ramp-up.
+ * Per-step latency percentiles and error rates are printed and written to target/perf/load-summary.csv.
+ * load.users=auto sizes N from available cores and free memory (load.memoryPerUserMb per browser).
+ */
+public class LoadRunner {
+
+    private static final Properties CONFIG = new ConfigManager().getConfigProps();
+    private static final Path SUMMARY_FILE = Paths.get("target", "perf", "load-summary.csv");
+
+    /** One timed step of the login flow, named like its Gherkin step. */
+    private record FlowStep(String name, java.util.function.Consumer<LoginTest> action) {}
+
+    private static final List<FlowStep> LOGIN_FLOW = List.of(
+            new FlowStep("Given User is on the login page", LoginTest::user_is_on_the_login_page),
+            new FlowStep("When User enter the username", LoginTest::user_enter_the_username),
+            new FlowStep("And Enter the password", LoginTest::enter_the_password),
+            new FlowStep("Then Click on login button", LoginTest::click_on_login_button),
+            new FlowStep("Then Verify if dashboard is visible", LoginTest::verify_if_dashboard_is_visible),
+            new FlowStep("Then Clicked on logout button", LoginTest::Clicked_on_logout_button)
+    );
+
+    private final Map<String, LatencyStats> stepStats = new ConcurrentHashMap<>();
+    private final LatencyStats flowStats = new LatencyStats("Login flow (total)");
+
+    @Test(description = "Concurrent real-browser users through the login flow")
+    public void runLoad() throws InterruptedException {
+        SecureConfig.init();
+
+        int users = HostCapacity.resolve(CONFIG.getProperty("load.users", "auto"),
+                Long.parseLong(CONFIG.getProperty("load.memoryPerUserMb", "600").trim()));
+        long rampUpMs = Long.parseLong(CONFIG.getProperty("load.rampUpSec", "30").trim()) * 1000L;
+        int iterations = Integer.parseInt(CONFIG.getProperty("load.iterations", "3").trim());
+        List<String> roles = Arrays.stream(CONFIG.getProperty("load.roles", "admin,trainer").split(","))
+                .map(String::trim).filter(r -> !r.isEmpty()).toList();
+
+        System.out.println("Load mode: " + users + " user(s), ramp-up " + rampUpMs / 1000 + "s, "
+                + iterations + " iteration(s) each, roles " + roles);
+        LOGIN_FLOW.forEach(step -> stepStats.put(step.name(), new LatencyStats(step.name())));
+
+        ExecutorService pool = Executors.newFixedThreadPool(users);
+        long started = System.nanoTime();
+        for (int u = 0; u < users; u++) {
+            final int userIndex = u;
+            final long startDelayMs = users == 1 ? 0 : rampUpMs * u / (users - 1);
+            final String role = roles.get(u % roles.size());
+            pool.submit(() -> runUser(userIndex, role, startDelayMs, iterations));
+        }
+        pool.shutdown();
+        if (!pool.awaitTermination(6, TimeUnit.HOURS)) {
+            pool.shutdownNow();
+        }
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+
+        report(users, elapsedMs);
+    }
+
+    private void runUser(int userIndex, String role, long startDelayMs, int iterations) {
+        Thread.currentThread().setName("load-user-" + userIndex);
+        int completed = 0;
+        try {
+            Thread.sleep(startDelayMs);
+            new DriverManager().initializeBrowser(CONFIG.getProperty("browser"), CONFIG.getProperty("headlessMode"));
+            for (int i = 1; i <= iterations; i++) {
+                new LoginPage().getRole(role);
+                LoginTest steps = new LoginTest();
+                long flowStart = System.nanoTime();
+                boolean ok = runFlow(steps);
+                completed++; // recorded either way; a failing browser reset below must not count it again
+                if (ok) {
+                    flowStats.recordNanos(System.nanoTime() - flowStart);
+                } else {
+                    flowStats.recordError("step failure");
+                    resetBrowser(userIndex);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            // Every planned iteration this user could not run counts as failed, so the error rate is per login
+            String reason = (completed == 0 ? "browser start: " : "browser restart: ") + e.getClass().getSimpleName();
+            for (int i = completed; i < iterations; i++) {
+                flowStats.recordError(reason);
+            }
+            System.err.println("Load user " + userIndex + " aborted after " + completed + " of " + iterations
+                    + " iteration(s): " + e.getMessage());
+        } finally {
+            DriverManager.quitDriver();
+        }
+    }
+
+    /** Runs the flow step by step; stops at the first failing step (the rest cannot run meaningfully). */
+    private boolean runFlow(LoginTest steps) {
+        for (FlowStep step : LOGIN_FLOW) {
+            LatencyStats stats = stepStats.get(step.name());
+            long t0 = System.nanoTime();
+            try {
+                step.action().accept(steps);
+                stats.recordNanos(System.nanoTime() - t0);
+            } catch (Throwable t) {
+                stats.recordError(t.getClass().getSimpleName());
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A failed iteration leaves the browser mid-flow (possibly still logged in), so the next iteration would fail
+     * on the same state. Drop cookies and web storage; restart the browser if that is not possible.
+     */
+    private void resetBrowser(int userIndex) {
+        try {
+            WebDriver driver = DriverManager.getDriver();
+            if (driver instanceof ChromiumDriver chromium) {
+                chromium.executeCdpCommand("Network.clearBrowserCookies", Map.of()); // Keycloak's cookies too
+            } else {
+                driver.manage().deleteAllCookies();
+            }
+            ((JavascriptExecutor) driver).executeScript(
+                    "try { window.localStorage.clear(); window.sessionStorage.clear(); } catch (e) {}");
+        } catch (Exception e) {
+            System.err.println("Load user " + userIndex + " restarting browser after failed iteration: " + e.getMessage());
+            DriverManager.quitDriver();
+            new DriverManager().initializeBrowser(CONFIG.getProperty("browser"), CONFIG.getProperty("headlessMode"));
+        }
+    }
+
+    private void report(int users, long elapsedMs) {
+        System.out.println("───────────────────────────────────────────────");
+        System.out.println("LOAD SUMMARY: " + users + " user(s), " + elapsedMs / 1000 + "s wall time, "
+                + String.format(Locale.ROOT, "%.2f", flowStats.count() * 60_000.0 / Math.max(1, elapsedMs)) + " logins/min");
+        StringBuilder csv = new StringBuilder("step,count,errors,errorRatePct,p50Ms,p90Ms,p95Ms,p99Ms,maxMs\n");
+        List<LatencyStats> all = new ArrayList<>();
+        LOGIN_FLOW.forEach(step -> all.add(stepStats.get(step.name())));
+        all.add(flowStats);
+        for (LatencyStats s : all) {
+            System.out.println(s.summary());
+            if (!s.errorBreakdown().isEmpty()) {
+                System.out.println("    errors: " + s.errorBreakdown());
+            }
+            csv.append(String.format(Locale.ROOT, "\"%s\",%d,%d,%.2f,%.0f,%.0f,%.0f,%.0f,%.0f%n", s.getName(), s.count(),
+                    s.errorCount(), s.errorRate() * 100, s.percentileMs(50), s.percentileMs(90),
+                    s.percentileMs(95), s.percentileMs(99), s.maxMs()));
+        }
+        System.out.println("───────────────────────────────────────────────");
+        try {
+            Files.createDirectories(SUMMARY_FILE.getParent());
+            Files.writeString(SUMMARY_FILE, csv);
+            System.out.println("Load summary written to: " + SUMMARY_FILE.toAbsolutePath());
+        } catch (IOException e) {
+            System.err.println("Failed to write load summary: " + e.getMessage());
+        }
+
+        double maxErrorRate = Double.parseDouble(CONFIG.getProperty("load.maxErrorRatePct", "5").trim()) / 100;
+        if (flowStats.errorRate() > maxErrorRate) {
+            throw new AssertionError(String.format(Locale.ROOT, "Login flow error rate %.1f%% exceeds %.1f%%",
+                    flowStats.errorRate() * 100, maxErrorRate * 100));
+        }
+    }
+}
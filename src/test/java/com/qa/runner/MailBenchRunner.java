@@ -0,0 +1,193 @@
+package com.qa.runner;
+
+import com.icegreen.greenmail.user.GreenMailUser;
+import com.icegreen.greenmail.util.GreenMail;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import com.qa.utils.ConfigManager;
+import com.qa.utils.EmailManager;
+import com.qa.utils.LatencyStats;
+import com.qa.utils.MailOutbox;
+import com.qa.utils.OutcomeEmailBuilder;
+import com.sun.mail.imap.IMAPStore;
+import jakarta.mail.Session;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Offline benchmark of the email paths (run.mode=mailbench), against an embedded GreenMail SMTP/IMAP
+ * server instead of Gmail. EmailManager is pointed at it through its email.* system property overrides.
+ * - OTP detection: the login-side wait is armed, then OtpMailInjector delivers the OTP mail after each
+ *   delay of mailbench.delaysMs (between mailbench.noiseMails unrelated mails); measured from delivery
+ *   to the code being handed back, and checked to be the injected code
+ * - outcome email: the path the smoke run uses, i.e. OutcomeEmailBuilder + EmailManager.queueEmail into the
+ *   MailOutbox (a mailbench.attachmentKb report), then one outbox delivery attempt to the server
+ * Results go to the console and target/perf/mail-bench.txt.
+ */
+public class MailBenchRunner {
+
+    private static final Properties CONFIG = new ConfigManager().getConfigProps();
+    private static final Path REPORT_FILE = Paths.get("target", "perf", "mail-bench.txt");
+    private static final String MAILBOX = "otp@bench.local";
+    private static final String PASSWORD = "bench";
+    private static final String OTP_SENDER = "noreply@keycloak.bench.local";
+    private static final String OTP_SUBJECT = "Your login code";
+
+    private GreenMail server;
+    private GreenMailUser mailbox;
+
+    @BeforeClass
+    public void startMailServer() {
+        server = new GreenMail(ServerSetupTest.SMTP_IMAP);
+        server.start();
+        mailbox = server.setUser(MAILBOX, MAILBOX, PASSWORD);
+
+        // Must be set before EmailManager is first used: it reads them once
+        System.setProperty("email.imap.host", "127.0.0.1");
+        System.setProperty("email.imap.port", String.valueOf(server.getImap().getPort()));
+        System.setProperty("email.imap.ssl", "false");
+        System.setProperty("email.smtp.host", "127.0.0.1");
+        System.setProperty("email.smtp.port", String.valueOf(server.getSmtp().getPort()));
+        System.setProperty("email.username", MAILBOX);
+        System.setProperty("email.password", PASSWORD);
+        System.setProperty("email.provider", "gmail");
+        System.setProperty("email.to", "reports@bench.local");
+        System.setProperty("email.cc", "");
+        System.setProperty("email.otp.sender", OTP_SENDER);
+        System.setProperty("email.otp.subject", OTP_SUBJECT);
+        System.setProperty("email.otp.length", "6");
+        System.setProperty("email.otp.preferLast", "false");
+        // A separate outbox, so mail queued by real runs is neither sent to the bench server nor counted
+        CONFIG.setProperty("email.outbox.dir", REPORT_FILE.resolveSibling("mail-bench-outbox").toString());
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void stopMailServer() {
+        if (server != null) server.stop();
+    }
+
+    @Test(description = "OTP detection latency and outcome email send time against an embedded mail server")
+    public void runMailBench() throws Exception {
+        int iterations = Integer.parseInt(CONFIG.getProperty("mailbench.iterations", "20").trim());
+        long[] delays = Arrays.stream(CONFIG.getProperty("mailbench.delaysMs", "0,250,1000,3000").split(","))
+                .map(String::trim).filter(s -> !s.isEmpty()).mapToLong(Long::parseLong).toArray();
+        int noise = Integer.parseInt(CONFIG.getProperty("mailbench.noiseMails", "200").trim());
+        int logoKb = Integer.parseInt(CONFIG.getProperty("mailbench.logoKb", "200").trim());
+        int sends = Integer.parseInt(CONFIG.getProperty("mailbench.sends", "3").trim());
+        int attachmentKb = Integer.parseInt(CONFIG.getProperty("mailbench.attachmentKb", "2048").trim());
+
+        LatencyStats detection = new LatencyStats("otp-detection");
+        LatencyStats wait = new LatencyStats("otp-wait-total");
+        LatencyStats queue = new LatencyStats("outcome-queue");
+        LatencyStats send = new LatencyStats("outcome-deliver");
+
+        try (OtpMailInjector injector = new OtpMailInjector(mailbox, OTP_SENDER, OTP_SUBJECT, logoKb)) {
+            injector.injectNoise(noise);
+            for (int i = 0; i < iterations; i++) {
+                long delay = delays.length == 0 ? 0 : delays[i % delays.length];
+                long armed = System.nanoTime();
+                CompletableFuture<String> otp = EmailManager.armOtpWait();
+                OtpMailInjector.Injection injection = injector.inject(delay);
+                try {
+                    String code = EmailManager.awaitOtp(otp);
+                    long detected = System.nanoTime();
+                    if (!injection.otp().equals(code)) {
+                        detection.recordError("wrong code");
+                        continue;
+                    }
+                    detection.recordNanos(detected - injection.deliveredAtNanos().get(5, TimeUnit.SECONDS));
+                    wait.recordNanos(detected - armed);
+                } catch (EmailManager.OtpReadException e) {
+                    detection.recordError(e.getClass().getSimpleName());
+                }
+                if (i % 10 == 9) injector.injectNoise(noise / 10); // the mailbox keeps growing like a real one
+            }
+        }
+
+        File attachment = attachment(attachmentKb);
+        for (int i = 0; i < sends; i++) {
+            int before = server.getReceivedMessages().length;
+            long start = System.nanoTime();
+            Path queued;
+            try (OutcomeEmailBuilder.OutcomeEmail email = OutcomeEmailBuilder.build(
+                    "<p>Outcome email benchmark</p>", attachment, new File[0], null)) {
+                queued = EmailManager.queueEmail("Mail bench " + i, email.content());
+            }
+            long queuedAt = System.nanoTime();
+            queue.recordNanos(queuedAt - start);
+            boolean drained = MailOutbox.drainAsync(Duration.ZERO).join();
+            long elapsed = System.nanoTime() - queuedAt;
+            if (drained && queued != null && MailOutbox.isDelivered(queued) && server.waitForIncomingEmail(10_000, before + 1)) {
+                send.recordNanos(elapsed);
+            } else {
+                send.recordError("not delivered");
+            }
+        }
+
+        String report = render(detection, wait, queue, send, delays, noise, logoKb, attachmentKb);
+        System.out.println(report);
+        try {
+            Files.createDirectories(REPORT_FILE.getParent());
+            Files.writeString(REPORT_FILE, report);
+            System.out.println("Mail bench report written to: " + REPORT_FILE.toAbsolutePath());
+        } catch (IOException e) {
+            System.err.println("Failed to write mail bench report: " + e.getMessage());
+        }
+
+        if (detection.errorCount() > 0 || send.errorCount() > 0) {
+            throw new AssertionError("Mail bench failures: OTP " + detection.errorBreakdown()
+                    + ", outcome email " + send.errorBreakdown());
+        }
+    }
+
+    private String render(LatencyStats detection, LatencyStats wait, LatencyStats queue, LatencyStats send, long[] delays,
+                          int noise, int logoKb, int attachmentKb) {
+        StringBuilder out = new StringBuilder();
+        out.append("───────────────────────────────────────────────\n");
+        out.append(String.format(Locale.ROOT,
+                "MAIL BENCH SUMMARY: IMAP IDLE %s, delays %s ms, %d noise mail(s), %d KB inline image, %d KB attachment%n",
+                idleAdvertised() ? "advertised" : "not advertised (polling)", Arrays.toString(delays), noise, logoKb, attachmentKb));
+        out.append("Delivery -> OTP detected:  ").append(detection.summary()).append('\n');
+        out.append("Armed -> OTP returned:     ").append(wait.summary()).append('\n');
+        out.append("Outcome email build+queue: ").append(queue.summary()).append('\n');
+        out.append("Outcome email delivery:    ").append(send.summary()).append('\n');
+        if (!detection.errorBreakdown().isEmpty()) {
+            out.append("OTP failures: ").append(detection.errorBreakdown()).append('\n');
+        }
+        out.append("───────────────────────────────────────────────\n");
+        return out.toString();
+    }
+
+    private boolean idleAdvertised() {
+        try {
+            IMAPStore store = (IMAPStore) Session.getInstance(new Properties()).getStore("imap");
+            store.connect("127.0.0.1", server.getImap().getPort(), MAILBOX, PASSWORD);
+            try {
+                return store.hasCapability("IDLE");
+            } finally {
+                store.close();
+            }
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private static File attachment(int kb) throws IOException {
+        Path file = REPORT_FILE.resolveSibling("mail-bench-attachment.bin");
+        Files.createDirectories(file.getParent());
+        byte[] data = new byte[kb * 1024];
+        new Random(42).nextBytes(data);
+        Files.write(file, data);
+        return file.toFile();
+    }
+}
@@ -3,16 +3,22 @@ package com.qa.runner;
 import com.qa.utils.ConfigManager;
 import com.qa.utils.EmailManager;
 import com.qa.utils.ExtentReportUtils;
+import com.qa.utils.HostCapacity;
+import com.qa.utils.MailOutbox;
+import com.qa.utils.OutcomeEmailBuilder;
 import io.github.cdimascio.dotenv.Dotenv;
 import org.testng.TestNG;
 import org.testng.annotations.Test;
 
 import java.io.File;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
 
 public class MasterRunner {
 
@@ -28,13 +34,25 @@ public class MasterRunner {
     public void runAutomationSuite() {
         printBanner("MASTER TEST RUNNER STARTED");
 
+        // Measurement modes (soak, ...) replace the smoke run entirely
+        String runMode = getConfigOrDefault("run.mode", "smoke").toLowerCase();
+        if (!"smoke".equals(runMode)) {
+            runMeasurementMode(runMode);
+            return;
+        }
+
+        // Mail an earlier run could not deliver goes out while this run works (awaited before the run ends)
+        CompletableFuture<Boolean> leftovers = MailOutbox.pending() > 0
+                ? MailOutbox.drainAsync(Duration.ofSeconds(outboxWaitSec()))
+                : CompletableFuture.completedFuture(true);
+
         deleteIfExists(FAILED_SCENARIO_FILE);
 
         String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
         String sparkPath = "Test Reports/Report/Initial_Run_Spark_" + timestamp;
 
         setupExtentProperties(sparkPath);
-        runTestNG(TestngRunner.class);
+        runTestNG(TestngRunner.class, true);
 
         boolean finalFailureDetected = isFailedScenarioDetected();
 
@@ -42,7 +60,7 @@ public class MasterRunner {
             System.out.println("Retry is ENABLED. Retrying failed scenarios...");
             String retrySparkPath = "Test Reports/Report/Retry_Run_Spark_" + timestamp;
             setupExtentProperties(retrySparkPath);
-            runTestNG(RetryFailedRunner.class);
+            runTestNG(RetryFailedRunner.class, false);
             finalFailureDetected = isFailedScenarioDetected(); // Check again after retry
         } else if (!isRetryEnabled() && finalFailureDetected) {
             System.out.println("Retry is DISABLED. Skipping failed scenario rerun.");
@@ -53,12 +71,14 @@ public class MasterRunner {
         printBanner("MASTER TEST RUNNER COMPLETED");
 
         // Minimal change: single decision point based on config and outcome
+        Path queued = null;
         if (shouldSendEmail(finalFailureDetected)) {
             System.out.println("Preparing to send outcome email with reports...");
-            sendOutcomeEmailWithReports(finalFailureDetected);
+            queued = sendOutcomeEmailWithReports(finalFailureDetected);
         } else {
             System.out.println("Email sending skipped based on configuration.");
         }
+        deliverOutbox(leftovers, queued);
 
         // Fail this test so TestNG marks it red
         if (finalFailureDetected) {
@@ -116,32 +136,92 @@ public class MasterRunner {
         System.out.println("Spark Report Path  : " + sparkReportPath + ".html");
     }
 
-    private void runTestNG(Class<?> runnerClass) {
+    private void runMeasurementMode(String runMode) {
+        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
+        Class<?> runnerClass;
+        switch (runMode) {
+            case "soak":
+                runnerClass = SoakRunner.class;
+                break;
+            case "coldwarm":
+                runnerClass = ColdWarmRunner.class;
+                break;
+            case "load":
+                runnerClass = LoadRunner.class;
+                break;
+            case "protocolload":
+                runnerClass = ProtocolLoadRunner.class;
+                break;
+            case "mailbench":
+                runnerClass = MailBenchRunner.class;
+                break;
+            default:
+                throw new IllegalStateException("Unknown run.mode: " + runMode
+                        + " (expected smoke|soak|coldwarm|load|protocolload|mailbench)");
+        }
+
+        System.out.println("Run mode: " + runMode.toUpperCase());
+        setupExtentProperties("Test Reports/Report/" + runnerClass.getSimpleName() + "_Spark_" + timestamp);
+        boolean failed = runTestNG(runnerClass, false);
+
+        printBanner(runMode.toUpperCase() + " RUN COMPLETED");
+        if (failed) {
+            throw new AssertionError(runMode + " run reported failures!");
+        }
+    }
+
+    /**
+     * Runs a TestNG class and returns true when any of its tests failed. Only the smoke pass runs scenarios in
+     * parallel; the retry run and the measurement modes stay sequential.
+     */
+    private boolean runTestNG(Class<?> runnerClass, boolean parallelScenarios) {
         try {
             TestNG testng = new TestNG();
             testng.setTestClasses(new Class[]{runnerClass});
             testng.setUseDefaultListeners(true);
             testng.setDefaultSuiteName("AutoSuite_" + runnerClass.getSimpleName());
             testng.setDefaultTestName("AutoTest_" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")));
+            if (parallelScenarios) {
+                configureParallelScenarios(testng);
+            }
             testng.run();
+            return testng.hasFailure();
         } catch (Exception e) {
             System.err.println("Error running TestNG class: " + runnerClass.getSimpleName());
             e.printStackTrace();
+            return true;
+        } finally {
+            TestRunnerBase.setParallelWorkers(1);
         }
     }
 
-    // Minimal change: generalized sender with correct subject/body for pass/fail and optional config overrides
-    private void sendOutcomeEmailWithReports(boolean failureDetected) {
-        try {
-            Thread.sleep(2000); // Allow files to be flushed
-        } catch (InterruptedException e) {
-            e.printStackTrace();
+    /**
+     * parallel.enabled=true runs scenarios on parallel.threads workers ("auto" sizes from cores and free memory,
+     * using the same per-browser memory estimate as load mode).
+     */
+    private void configureParallelScenarios(TestNG testng) {
+        if (!"true".equalsIgnoreCase(getConfigOrDefault("parallel.enabled", "false"))) {
+            return;
         }
+        int threads = HostCapacity.resolve(getConfigOrDefault("parallel.threads", "auto"),
+                Long.parseLong(getConfigOrDefault("load.memoryPerUserMb", "600")));
+        testng.addListener(new ParallelScenarioTransformer());
+        testng.setDataProviderThreadCount(threads);
+        TestRunnerBase.setParallelWorkers(threads); // read by the scenario scheduler
+        System.out.println("Parallel scenario execution ENABLED with " + threads + " worker thread(s).");
+    }
 
+    /**
+     * Post-run pipeline: builds the outcome email and stores it in the durable outbox. The report is complete
+     * here: TestNG runs in-process and testng.run() only returns after the Extent adapter flushed it.
+     *
+     * @return the queued email, or null when none could be queued
+     */
+    private Path sendOutcomeEmailWithReports(boolean failureDetected) {
         File latestReportFolder = getLatestReportFolder(new File(REPORT_ROOT));
         if (latestReportFolder == null) {
             System.err.println("No report folder found inside: " + REPORT_ROOT);
-            return;
+            return null;
         }
 
         String reportPath = latestReportFolder.getAbsolutePath() + "/Test Reports";
@@ -150,23 +230,52 @@ public class MasterRunner {
         File htmlReport = new File(ExtentReportUtils.getReportFolderPath(), "Report/Spark.html");
         File screenshotDir = new File(ExtentReportUtils.getReportFolderPath(), "screenshot");
 
-        if (!htmlReport.exists()) {
+        if (!htmlReport.isFile()) {
             System.err.println("Extent HTML report not found at: " + htmlReport.getAbsolutePath());
-            return;
+            return null;
         }
 
-        File[] screenshots = findAllPngFiles(screenshotDir);
-        File[] attachments = (screenshots.length > 0)
-                ? combineFiles(htmlReport, screenshots)
-                : new File[]{htmlReport};
-
         // Minimal addition: pick subject/body based on outcome with optional config overrides
         String[] sb = getEmailSubjectAndBody(failureDetected);
         String subject = sb[0];
         String body = sb[1];
 
-        System.out.println("Sending outcome email with report" + (screenshots.length > 0 ? " and screenshots..." : "..."));
-        EmailManager.sendEmailWithAttachments(subject, body, attachments);
+        try {
+            File[] pngs = findAllPngFiles(screenshotDir);
+            System.out.println("Queuing outcome email with report" + (pngs.length > 0 ? " and screenshots..." : "..."));
+            try (OutcomeEmailBuilder.OutcomeEmail email =
+                         OutcomeEmailBuilder.build(body, htmlReport, pngs, Path.of(FAILED_SCENARIO_FILE))) {
+                return EmailManager.queueEmail(subject, email.content());
+            }
+        } catch (Exception e) {
+            System.err.println("Failed to queue outcome email: " + e);
+            return null;
+        }
+    }
+
+    /**
+     * Waits for the startup drain, then makes one delivery attempt for everything still queued (this run's
+     * email included); email.outbox.waitSec &gt; 0 opts in to retrying with backoff for that long. The drain is
+     * awaited so the JVM never exits mid-SMTP (an attempt is bounded by the SMTP timeouts); what is left is
+     * retried by the next run.
+     */
+    private void deliverOutbox(CompletableFuture<Boolean> leftovers, Path queued) {
+        leftovers.exceptionally(e -> false).join();
+        if (MailOutbox.pending() > 0) {
+            MailOutbox.drainAsync(Duration.ofSeconds(outboxWaitSec())).exceptionally(e -> false).join();
+        }
+        if (queued == null) return;
+        System.out.println(MailOutbox.isDelivered(queued)
+                ? "Outcome email delivered."
+                : "Outcome email kept in the outbox (" + queued.getParent().toAbsolutePath() + "), it is retried on the next run.");
+    }
+
+    private long outboxWaitSec() {
+        try {
+            return Math.max(0, Long.parseLong(getConfigOrDefault("email.outbox.waitSec", "0")));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
     }
 
     private File getLatestReportFolder(File reportRoot) {
@@ -187,13 +296,6 @@ public class MasterRunner {
         return new File[0];
     }
 
-    private File[] combineFiles(File baseFile, File[] others) {
-        File[] combined = new File[others.length + 1];
-        combined[0] = baseFile;
-        System.arraycopy(others, 0, combined, 1, others.length);
-        return combined;
-    }
-
     private void deleteIfExists(String path) {
         File file = new File(path);
         if (file.exists()) {
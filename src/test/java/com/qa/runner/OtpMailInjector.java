@@ -0,0 +1,117 @@
+package com.qa.runner;
+
+import com.icegreen.greenmail.user.GreenMailUser;
+import jakarta.activation.DataHandler;
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeBodyPart;
+import jakarta.mail.internet.MimeMessage;
+import jakarta.mail.internet.MimeMultipart;
+import jakarta.mail.util.ByteArrayDataSource;
+
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Delivers mails straight into the embedded mail server's mailbox for the email benchmark:
+ * OTP mails shaped like the Keycloak ones (plain + HTML alternative and an inline logo, so only
+ * streaming the text part pays off) after a given delay, and unrelated mails to give SEARCH some work.
+ */
+final class OtpMailInjector implements AutoCloseable {
+
+    /** One scheduled OTP mail; completes with System.nanoTime() at delivery. */
+    record Injection(String otp, CompletableFuture<Long> deliveredAtNanos) {}
+
+    private final GreenMailUser mailbox;
+    private final String sender;
+    private final String subject;
+    private final byte[] logo;
+    private final Session session = Session.getInstance(new Properties());
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "otp-mail-injector");
+        t.setDaemon(true);
+        return t;
+    });
+    private final Random random = new Random();
+
+    OtpMailInjector(GreenMailUser mailbox, String sender, String subject, int logoKb) {
+        this.mailbox = mailbox;
+        this.sender = sender;
+        this.subject = subject;
+        this.logo = new byte[logoKb * 1024];
+        random.nextBytes(logo);
+    }
+
+    /** Schedules an OTP mail with a random six-digit code. */
+    Injection inject(long delayMs) {
+        String otp = String.format("%06d", random.nextInt(1_000_000));
+        CompletableFuture<Long> delivered = new CompletableFuture<>();
+        scheduler.schedule(() -> {
+            try {
+                MimeMessage mail = otpMail(otp);
+                mailbox.deliver(mail);
+                delivered.complete(System.nanoTime());
+            } catch (Exception e) {
+                delivered.completeExceptionally(e);
+            }
+        }, delayMs, TimeUnit.MILLISECONDS);
+        return new Injection(otp, delivered);
+    }
+
+    /** Delivers mails from other senders that the OTP search has to skip. */
+    void injectNoise(int count) throws MessagingException {
+        for (int i = 0; i < count; i++) {
+            MimeMessage mail = new MimeMessage(session);
+            mail.setFrom(new InternetAddress("newsletter@bench.local"));
+            mail.setRecipient(Message.RecipientType.TO, new InternetAddress(mailbox.getEmail()));
+            mail.setSubject("Weekly digest " + i);
+            mail.setText("Order 4711" + i + " shipped. Reference " + random.nextInt(1_000_000));
+            mail.saveChanges();
+            mailbox.deliver(mail);
+        }
+    }
+
+    private MimeMessage otpMail(String otp) throws MessagingException {
+        MimeBodyPart plain = new MimeBodyPart();
+        plain.setText("Your one-time code is " + otp + ". It expires in 5 minutes.", "UTF-8");
+
+        MimeBodyPart html = new MimeBodyPart();
+        html.setContent("<html><head><style>.c{color:#333333}</style></head><body>"
+                + "<img src=\"cid:logo\"><p class=\"c\">Your one-time code is <b>" + otp + "</b>.</p>"
+                + "</body></html>", "text/html; charset=UTF-8");
+
+        MimeMultipart alternative = new MimeMultipart("alternative");
+        alternative.addBodyPart(plain);
+        alternative.addBodyPart(html);
+        MimeBodyPart text = new MimeBodyPart();
+        text.setContent(alternative);
+
+        MimeBodyPart image = new MimeBodyPart();
+        image.setDataHandler(new DataHandler(new ByteArrayDataSource(logo, "image/png")));
+        image.setContentID("<logo>");
+        image.setDisposition(MimeBodyPart.INLINE);
+
+        MimeMultipart related = new MimeMultipart("related");
+        related.addBodyPart(text);
+        related.addBodyPart(image);
+
+        MimeMessage mail = new MimeMessage(session);
+        mail.setFrom(new InternetAddress(sender));
+        mail.setRecipient(Message.RecipientType.TO, new InternetAddress(mailbox.getEmail()));
+        mail.setSubject(subject);
+        mail.setContent(related);
+        mail.saveChanges();
+        return mail;
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,21 @@
+package com.qa.runner;
+
+import org.testng.IAnnotationTransformer;
+import org.testng.annotations.IDataProviderAnnotation;
+
+import java.lang.reflect.Method;
+
+/**
+ * Turns the Cucumber "scenarios" data provider parallel (parallel.enabled=true), so TestNG hands
+ * scenarios to parallel.threads worker threads (set via TestNG#setDataProviderThreadCount).
+ * Each worker owns its browser, session and log routing; see DriverManager and SessionManager.
+ */
+public class ParallelScenarioTransformer implements IAnnotationTransformer {
+
+    @Override
+    public void transform(IDataProviderAnnotation annotation, Method method) {
+        if ("scenarios".equals(method.getName())) {
+            annotation.setParallel(true);
+        }
+    }
+}
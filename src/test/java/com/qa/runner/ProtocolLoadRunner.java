@@ -0,0 +1,154 @@
+package com.qa.runner;
+
+import com.qa.common.NetworkArchive;
+import com.qa.common.ProtocolLoadGenerator;
+import com.qa.common.ProtocolScript;
+import com.qa.utils.ConfigManager;
+import com.qa.utils.BasePage;
+import com.qa.utils.LatencyStats;
+import com.qa.utils.SecureConfig;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * Protocol-level load (run.mode=protocolload).
+ * Replays the HTTP exchanges of a smoke scenario recorded with network.mode=record (network.archive)
+ * as a correlated request script on virtual threads at protocolLoad.ratePerSec for protocolLoad.durationSec.
+ * protocolLoad.targetOrigin points every request at another origin.
+ * The recording holds no credentials (NetworkArchive redacts them): each iteration logs in with the next row of
+ * protocolLoad.usersFile (CSV, header = the redacted field names, e.g. username,password), or else as
+ * protocolLoad.role with the credentials from .env.sec.
+ * protocolLoad.stub=true runs the generator end to end against ProtocolStubServer and its fixture script
+ * instead of a recording (no browser, archive or network needed), failing on any error.
+ * Throughput, latency histograms and error breakdowns go to the console and target/perf/protocol-load.txt.
+ */
+public class ProtocolLoadRunner {
+
+    private static final Properties CONFIG = new ConfigManager().getConfigProps();
+    private static final Path REPORT_FILE = Paths.get("target", "perf", "protocol-load.txt");
+
+    @Test(description = "Protocol-level load from recorded smoke traffic")
+    public void runProtocolLoad() throws InterruptedException, IOException {
+        if (Boolean.parseBoolean(CONFIG.getProperty("protocolLoad.stub", "false").trim())) {
+            try (ProtocolStubServer stub = new ProtocolStubServer()) {
+                System.out.println("Protocol load against local stub server " + stub.origin());
+                run(stub.script(), stub.credentials(), 0);
+            }
+            return;
+        }
+
+        Path archive = NetworkArchive.archivePath();
+        if (!Files.exists(archive)) {
+            throw new IllegalStateException("No recording at " + archive.toAbsolutePath()
+                    + ". Run the smoke once with network.mode=record first.");
+        }
+
+        ProtocolScript script = ProtocolScript.fromArchive(archive,
+                csv(CONFIG.getProperty("protocolLoad.resourceTypes", "Document,XHR,Fetch")),
+                csv(CONFIG.getProperty("protocolLoad.correlate",
+                        "code,session_state,session_code,execution,tab_id,client_data,state,nonce")),
+                CONFIG.getProperty("protocolLoad.targetOrigin", "").trim());
+        if (script.steps().isEmpty()) {
+            throw new IllegalStateException("Recording contains no replayable requests: " + archive.toAbsolutePath());
+        }
+        SecureConfig.init();
+        run(script, credentials(), Double.parseDouble(CONFIG.getProperty("protocolLoad.maxErrorRatePct", "5").trim()) / 100);
+    }
+
+    private void run(ProtocolScript script, List<Map<String, String>> credentials, double maxErrorRate)
+            throws InterruptedException {
+        double rate = Double.parseDouble(CONFIG.getProperty("protocolLoad.ratePerSec", "5").trim());
+        Duration duration = Duration.ofSeconds(Long.parseLong(CONFIG.getProperty("protocolLoad.durationSec", "60").trim()));
+        int maxInFlight = Integer.parseInt(CONFIG.getProperty("protocolLoad.maxInFlight", "500").trim());
+        Duration timeout = Duration.ofSeconds(Long.parseLong(CONFIG.getProperty("protocolLoad.requestTimeoutSec", "30").trim()));
+
+        System.out.println("Protocol load: " + script.steps().size() + " request(s) per iteration, "
+                + rate + " iteration(s)/s for " + duration.toSeconds() + "s (max in flight " + maxInFlight + ")");
+
+        ProtocolLoadGenerator.Result result = new ProtocolLoadGenerator(script, timeout, credentials).run(rate, duration, maxInFlight);
+        String report = render(result);
+        System.out.println(report);
+        try {
+            Files.createDirectories(REPORT_FILE.getParent());
+            Files.writeString(REPORT_FILE, report);
+            System.out.println("Protocol load report written to: " + REPORT_FILE.toAbsolutePath());
+        } catch (IOException e) {
+            System.err.println("Failed to write protocol load report: " + e.getMessage());
+        }
+
+        if (result.iterations().errorRate() > maxErrorRate) {
+            throw new AssertionError(String.format(Locale.ROOT, "Iteration error rate %.1f%% exceeds %.1f%%",
+                    result.iterations().errorRate() * 100, maxErrorRate * 100));
+        }
+    }
+
+    private String render(ProtocolLoadGenerator.Result r) {
+        StringBuilder out = new StringBuilder();
+        out.append("───────────────────────────────────────────────\n");
+        out.append(String.format(Locale.ROOT,
+                "PROTOCOL LOAD SUMMARY: %ds, iterations started=%d (dropped=%d), throughput %.2f it/s, %.2f req/s%n",
+                r.elapsedMs() / 1000, r.iterationsStarted(), r.droppedStarts(), r.iterationsPerSec(), r.requestsPerSec()));
+        out.append(r.iterations().summary()).append('\n');
+        out.append(r.requests().summary()).append('\n');
+        appendHistogram(out, r.requests());
+        out.append("Per step:\n");
+        for (LatencyStats s : r.perStep().values()) {
+            out.append("  ").append(s.summary()).append('\n');
+            if (!s.errorBreakdown().isEmpty()) {
+                out.append("      errors: ").append(s.errorBreakdown()).append('\n');
+            }
+        }
+        if (!r.iterations().errorBreakdown().isEmpty()) {
+            out.append("Iteration failures by step: ").append(r.iterations().errorBreakdown()).append('\n');
+        }
+        out.append("───────────────────────────────────────────────\n");
+        return out.toString();
+    }
+
+    private void appendHistogram(StringBuilder out, LatencyStats stats) {
+        Map<String, Integer> histogram = stats.histogram();
+        int max = histogram.values().stream().mapToInt(Integer::intValue).max().orElse(1);
+        out.append("Latency histogram (all requests):\n");
+        histogram.forEach((bucket, n) -> out.append(String.format(Locale.ROOT, "  %14s | %-40s %d%n",
+                bucket, "#".repeat(Math.max(1, n * 40 / max)), n)));
+    }
+
+    /** Rows of protocolLoad.usersFile, or the single protocolLoad.role login from .env.sec. */
+    private static List<Map<String, String>> credentials() throws IOException {
+        String usersFile = CONFIG.getProperty("protocolLoad.usersFile", "").trim();
+        if (usersFile.isEmpty()) {
+            String role = CONFIG.getProperty("protocolLoad.role", "admin").trim();
+            return List.of(Map.of("username", BasePage.getUsername(role), "password", BasePage.getPassword(role)));
+        }
+        List<String> lines = Files.readAllLines(Paths.get(usersFile)).stream().filter(l -> !l.isBlank()).toList();
+        if (lines.size() < 2) {
+            throw new IllegalStateException("protocolLoad.usersFile needs a header and at least one user: " + usersFile);
+        }
+        String[] header = lines.get(0).split(",", -1);
+        List<Map<String, String>> users = new ArrayList<>();
+        for (String line : lines.subList(1, lines.size())) {
+            String[] values = line.split(",", -1);
+            Map<String, String> user = new LinkedHashMap<>();
+            for (int i = 0; i < header.length && i < values.length; i++) {
+                user.put(header[i].trim(), values[i].trim());
+            }
+            users.add(user);
+        }
+        System.out.println("Protocol load: " + users.size() + " user(s) from " + usersFile);
+        return users;
+    }
+
+    private static Set<String> csv(String value) {
+        Set<String> out = new LinkedHashSet<>();
+        for (String v : value.split(",")) {
+            if (!v.isBlank()) out.add(v.trim());
+        }
+        return out;
+    }
+}
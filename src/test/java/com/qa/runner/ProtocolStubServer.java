@@ -0,0 +1,194 @@
+package com.qa.runner;
+
+import com.qa.common.NetworkArchive;
+import com.qa.common.ProtocolScript;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+
+/**
+ * Local stand-in for Keycloak + portal (protocolLoad.stub=true), so the protocol load generator can be run
+ * end to end without the real servers. It implements the shape of the recorded login flow and checks the
+ * dynamic values per session, so a script whose correlation is broken fails instead of passing:
+ * - GET  auth      : new AUTH_SESSION_ID cookie, login form whose action carries session_code/execution/tab_id
+ * - POST authenticate (form, cookie + session_code + credentials checked) : 302 to the callback with
+ *                    state/session_state/code; wrong credentials re-render the login page with 200, like Keycloak
+ * - GET  callback  (code checked)
+ * - POST token     (form, code checked, single use) : {"access_token": ...}
+ * - GET  api/me    (Authorization: Bearer checked)
+ * {@link #script()} is the matching fixture: the login flow as the browser sent it, with stale values, passed
+ * through NetworkArchive.redact like a real recording; {@link #credentials()} fills the redacted login fields.
+ */
+final class ProtocolStubServer implements AutoCloseable {
+
+    private static final String REALM = "/realms/amfi";
+    private static final String COOKIE = "AUTH_SESSION_ID";
+    private static final String USERNAME = "loaduser";
+    private static final String PASSWORD = "stub-secret";
+
+    /** Values issued to one browser session. */
+    private static final class Session {
+        final String sessionCode = token();
+        volatile String code;
+        volatile String accessToken;
+    }
+
+    private final HttpServer server;
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final Map<String, Session> byCode = new ConcurrentHashMap<>();
+    private final Set<String> accessTokens = ConcurrentHashMap.newKeySet();
+
+    ProtocolStubServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext(REALM + "/protocol/openid-connect/auth", this::auth);
+        server.createContext(REALM + "/login-actions/authenticate", this::authenticate);
+        server.createContext("/portal/callback", this::callback);
+        server.createContext(REALM + "/protocol/openid-connect/token", this::token);
+        server.createContext("/portal/api/me", this::me);
+        server.start();
+    }
+
+    String origin() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    /** The login flow as NetworkArchive would archive it: stale dynamic values, secrets redacted. */
+    ProtocolScript script() {
+        String base = origin();
+        Map<String, String> form = Map.of("Content-Type", "application/x-www-form-urlencoded", "Cookie", COOKIE + "=rec-session");
+        List<NetworkArchive.Exchange> recorded = List.of(
+                exchange("GET", base + REALM + "/protocol/openid-connect/auth?client_id=portal&response_type=code&state=rec-state&nonce=rec-nonce",
+                        Map.of("Accept", "text/html"), null, 200, "text/html", null, "<html>login</html>"),
+                exchange("POST", base + REALM + "/login-actions/authenticate?session_code=rec-session-code&execution=rec-execution&tab_id=rec-tab",
+                        form, "username=" + USERNAME + "&password=recorded-password&credentialId=", 302, "text/plain",
+                        base + "/portal/callback?state=rec-state&session_state=rec-session-state&code=rec-code", ""),
+                exchange("GET", base + "/portal/callback?state=rec-state&session_state=rec-session-state&code=rec-code",
+                        Map.of("Accept", "text/html"), null, 200, "text/html", null, "<html>portal</html>"),
+                exchange("POST", base + REALM + "/protocol/openid-connect/token",
+                        form, "grant_type=authorization_code&client_id=portal&code=rec-code", 200, "application/json", null,
+                        "{\"access_token\":\"rec-access-token\",\"refresh_token\":\"rec-refresh-token\",\"token_type\":\"Bearer\"}"),
+                exchange("GET", base + "/portal/api/me",
+                        Map.of("Accept", "application/json", "Authorization", "Bearer rec-access-token"), null, 200,
+                        "application/json", null, "{\"user\":\"" + USERNAME + "\"}"));
+        return ProtocolScript.fromExchanges(recorded.stream().map(NetworkArchive::redact).toList(),
+                Set.of("Document", "XHR", "Fetch"),
+                Set.of("code", "session_state", "session_code", "execution", "tab_id", "state"), null);
+    }
+
+    /** The login the stub accepts, keyed by the redacted form fields. */
+    List<Map<String, String>> credentials() {
+        return List.of(Map.of("username", USERNAME, "password", PASSWORD));
+    }
+
+    private static NetworkArchive.Exchange exchange(String method, String url, Map<String, String> headers, String body,
+                                                    int status, String contentType, String location, String responseBody) {
+        List<Map<String, String>> responseHeaders = new ArrayList<>();
+        responseHeaders.add(Map.of("name", "Content-Type", "value", contentType));
+        responseHeaders.add(Map.of("name", "Set-Cookie", "value", COOKIE + "=rec-session; Path=/"));
+        if (location != null) responseHeaders.add(Map.of("name", "Location", "value", location));
+        return new NetworkArchive.Exchange(method, url, contentType.contains("json") ? "Fetch" : "Document", headers, body,
+                status, "", responseHeaders, Base64.getEncoder().encodeToString(responseBody.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private void auth(HttpExchange ex) throws IOException {
+        String id = token();
+        Session session = new Session();
+        sessions.put(id, session);
+        ex.getResponseHeaders().add("Set-Cookie", COOKIE + "=" + id + "; Path=/; HttpOnly");
+        respond(ex, 200, "text/html", "<html><body><form id=\"kc-form-login\" method=\"post\" action=\""
+                + origin() + REALM + "/login-actions/authenticate?session_code=" + session.sessionCode
+                + "&amp;execution=" + token() + "&amp;tab_id=" + token() + "\">"
+                + "<input name=\"username\"><input name=\"password\" type=\"password\"></form></body></html>");
+    }
+
+    private void authenticate(HttpExchange ex) throws IOException {
+        Session session = sessions.get(cookie(ex));
+        Map<String, String> query = params(ex.getRequestURI().getRawQuery());
+        if (!"POST".equals(ex.getRequestMethod()) || session == null
+                || !session.sessionCode.equals(query.get("session_code"))) {
+            respond(ex, 400, "text/plain", "invalid session_code or cookie");
+            return;
+        }
+        Map<String, String> form = params(new String(ex.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+        if (!USERNAME.equals(form.get("username")) || !PASSWORD.equals(form.get("password"))) {
+            respond(ex, 200, "text/html", "<html><body><span id=\"input-error\">Invalid username or password.</span></body></html>");
+            return;
+        }
+        session.code = token();
+        byCode.put(session.code, session);
+        ex.getResponseHeaders().add("Location", origin() + "/portal/callback?state=" + query.getOrDefault("state", "s")
+                + "&session_state=" + token() + "&code=" + session.code);
+        respond(ex, 302, "text/plain", "");
+    }
+
+    private void callback(HttpExchange ex) throws IOException {
+        String code = params(ex.getRequestURI().getRawQuery()).get("code");
+        respond(ex, code != null && byCode.containsKey(code) ? 200 : 400, "text/html", "<html><body>portal</body></html>");
+    }
+
+    private void token(HttpExchange ex) throws IOException {
+        Map<String, String> form = params(new String(ex.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+        Session session = form.get("code") == null ? null : byCode.remove(form.get("code")); // codes are single use
+        if (session == null) {
+            respond(ex, 400, "application/json", "{\"error\":\"invalid_grant\"}");
+            return;
+        }
+        session.accessToken = token();
+        accessTokens.add(session.accessToken);
+        respond(ex, 200, "application/json", "{\"access_token\":\"" + session.accessToken + "\",\"token_type\":\"Bearer\"}");
+    }
+
+    private void me(HttpExchange ex) throws IOException {
+        String auth = Objects.toString(ex.getRequestHeaders().getFirst("Authorization"), "");
+        boolean valid = auth.startsWith("Bearer ") && accessTokens.contains(auth.substring(7));
+        respond(ex, valid ? 200 : 401, "application/json", valid ? "{\"user\":\"loaduser\"}" : "{}");
+    }
+
+    private static String cookie(HttpExchange ex) {
+        List<String> headers = ex.getRequestHeaders().getOrDefault("Cookie", List.of());
+        for (String header : headers) {
+            for (String pair : header.split(";")) {
+                String[] kv = pair.trim().split("=", 2);
+                if (kv.length == 2 && kv[0].equals(COOKIE)) return kv[1];
+            }
+        }
+        return null;
+    }
+
+    private static Map<String, String> params(String raw) {
+        Map<String, String> out = new HashMap<>();
+        if (raw == null || raw.isEmpty()) return out;
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) out.put(pair.substring(0, eq), URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+        }
+        return out;
+    }
+
+    private static void respond(HttpExchange ex, int status, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        ex.getResponseHeaders().set("Content-Type", contentType);
+        ex.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        try (OutputStream out = ex.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static String token() {
+        return UUID.randomUUID().toString().replace("-", "");
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
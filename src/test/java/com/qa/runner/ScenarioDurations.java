@@ -0,0 +1,120 @@
+package com.qa.runner;
+
+import com.qa.utils.ConfigManager;
+import io.cucumber.testng.PickleWrapper;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-scenario duration history used for longest-first scheduling across parallel workers.
+ * Kept in scheduler.durationsFile (feature file + scenario name -> ms, smoothed over runs so one slow
+ * run does not dominate). Scenarios without history get the median of the known ones, or
+ * scheduler.defaultDurationSec when there is no history at all.
+ * Also tracks the actual makespan (first scenario start to last scenario end) of the current run.
+ */
+public final class ScenarioDurations {
+
+    private static final Properties CONFIG = new ConfigManager().getConfigProps();
+    private static final double SMOOTHING = 0.5; // weight of the newest run
+
+    private static final Map<String, Double> HISTORY = new ConcurrentHashMap<>();
+    private static final Map<String, Double> MEASURED = new ConcurrentHashMap<>();
+    private static final AtomicLong FIRST_START = new AtomicLong(Long.MAX_VALUE);
+    private static final AtomicLong LAST_END = new AtomicLong();
+    private static volatile boolean loaded;
+
+    private ScenarioDurations() {
+        throw new UnsupportedOperationException("Utility class - instantiation not allowed");
+    }
+
+    public static String key(PickleWrapper pw) {
+        String uri = pw.getPickle().getUri().toString();
+        return uri.substring(uri.lastIndexOf('/') + 1) + ":" + pw.getPickle().getName();
+    }
+
+    /** Expected duration in ms of a scenario from history, or the default for unknown scenarios. */
+    public static double expectedMs(String key) {
+        load();
+        Double known = HISTORY.get(key);
+        return known != null ? known : defaultMs();
+    }
+
+    public static boolean hasHistory() {
+        load();
+        return !HISTORY.isEmpty();
+    }
+
+    /** Records one finished scenario of this run. */
+    public static void record(String key, long startMs, long endMs) {
+        MEASURED.merge(key, (double) (endMs - startMs), Math::max);
+        FIRST_START.accumulateAndGet(startMs, Math::min);
+        LAST_END.accumulateAndGet(endMs, Math::max);
+    }
+
+    /** Wall time from the first scenario start to the last scenario end of this run, or -1. */
+    public static long actualMakespanMs() {
+        long first = FIRST_START.get();
+        return first == Long.MAX_VALUE ? -1 : LAST_END.get() - first;
+    }
+
+    /** Merges this run's measurements into the history file and starts a new makespan measurement. */
+    public static synchronized void save() {
+        FIRST_START.set(Long.MAX_VALUE);
+        LAST_END.set(0);
+        if (MEASURED.isEmpty()) return;
+        load();
+        MEASURED.forEach((k, ms) -> HISTORY.merge(k, ms, (old, now) -> SMOOTHING * now + (1 - SMOOTHING) * old));
+        MEASURED.clear();
+
+        Properties out = new Properties();
+        HISTORY.forEach((k, ms) -> out.setProperty(k, String.valueOf(Math.round(ms))));
+        Path file = file();
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            try (Writer w = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                out.store(w, "Scenario durations in ms (used by ScenarioScheduler)");
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to save scenario durations: " + e.getMessage());
+        }
+    }
+
+    private static double defaultMs() {
+        if (HISTORY.isEmpty()) {
+            return Double.parseDouble(CONFIG.getProperty("scheduler.defaultDurationSec", "60").trim()) * 1000;
+        }
+        double[] sorted = HISTORY.values().stream().mapToDouble(Double::doubleValue).sorted().toArray();
+        return sorted[sorted.length / 2];
+    }
+
+    private static synchronized void load() {
+        if (loaded) return;
+        loaded = true;
+        Path file = file();
+        if (!Files.exists(file)) return;
+        Properties in = new Properties();
+        try (Reader r = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            in.load(r);
+            in.forEach((k, v) -> {
+                try {
+                    HISTORY.put(k.toString(), Double.parseDouble(v.toString()));
+                } catch (NumberFormatException ignore) { }
+            });
+        } catch (IOException e) {
+            System.err.println("Failed to read scenario durations: " + e.getMessage());
+        }
+    }
+
+    private static Path file() {
+        return Paths.get(CONFIG.getProperty("scheduler.durationsFile", ".cache/scenario-durations.properties").trim());
+    }
+}
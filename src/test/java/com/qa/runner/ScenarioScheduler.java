@@ -0,0 +1,205 @@
+package com.qa.runner;
+
+import com.qa.common.SessionManager;
+import io.cucumber.testng.PickleWrapper;
+
+import java.util.*;
+import java.util.function.ToIntFunction;
+
+/**
+ * Orders scenarios for the Cucumber data provider.
+ * - Role affinity (scheduler.roleAffinity=true, opt-in): every role change costs a logout + UI login with
+ *   OTP, so whole features (their scenarios stay together and in file order, since later scenarios may
+ *   depend on earlier ones) are reordered so that the next feature starts with the role the previous one
+ *   ended with.
+ * - Longest-first (parallel workers): the run ends when the slowest worker ends, so work is spread over
+ *   worker lanes longest-processing-time-first using ScenarioDurations history. The lanes are interleaved
+ *   into one row order; TestNG hands each row to whichever worker is free, so lanes balance the load but
+ *   do not pin roles to workers.
+ * Ordering constraints are kept: scenarios only move inside their bucket (tag rank in tags mode,
+ * feature in features mode).
+ */
+public final class ScenarioScheduler {
+
+    private static volatile long predictedMakespanMs = -1;
+
+    private ScenarioScheduler() {
+        throw new UnsupportedOperationException("Utility class - instantiation not allowed");
+    }
+
+    /** One schedulable scenario row of the Cucumber data provider. */
+    private record Item(Object[] row, String feature, String role, int bucket, double expectedMs) {}
+
+    /** Rows of one group assigned to the same lane. */
+    private record Chunk(List<Item> items, double expectedMs) {}
+
+    /**
+     * @param rows         data provider rows in their required order
+     * @param bucket       order constraint: rows with a lower bucket must run before rows with a higher one
+     * @param workers      number of parallel workers (1 = sequential)
+     * @param roleAffinity group rows of the same role
+     */
+    public static Object[][] schedule(List<Object[]> rows, ToIntFunction<Object[]> bucket, int workers,
+                                      boolean roleAffinity) {
+        List<Item> items = new ArrayList<>();
+        for (Object[] row : rows) {
+            PickleWrapper pw = (PickleWrapper) row[0];
+            items.add(new Item(row, pw.getPickle().getUri().toString(),
+                    SessionManager.roleFromScenarioName(pw.getPickle().getName()),
+                    bucket.applyAsInt(row), ScenarioDurations.expectedMs(ScenarioDurations.key(pw))));
+        }
+
+        // Buckets in ascending order; a feature's rows keep their original relative order
+        Map<Integer, List<Item>> buckets = new TreeMap<>();
+        items.forEach(i -> buckets.computeIfAbsent(i.bucket(), b -> new ArrayList<>()).add(i));
+
+        List<Item> scheduled = new ArrayList<>();
+        String lastRole = null;
+        for (List<Item> bucketItems : buckets.values()) {
+            List<List<Item>> groups = roleAffinity
+                    ? chainByRole(featureRuns(bucketItems), lastRole)
+                    : bucketItems.stream().map(List::of).toList();
+            if (workers <= 1) {
+                groups.forEach(scheduled::addAll);
+            } else {
+                scheduled.addAll(interleave(lanes(groups, workers)));
+            }
+            if (!scheduled.isEmpty()) lastRole = scheduled.get(scheduled.size() - 1).role();
+        }
+
+        predictedMakespanMs = Math.round(makespan(scheduled, workers));
+        report(items, scheduled, workers, roleAffinity);
+        return scheduled.stream().map(Item::row).toArray(Object[][]::new);
+    }
+
+    /** Makespan the last schedule() predicted from duration history, or -1. */
+    public static long predictedMakespanMs() {
+        return predictedMakespanMs;
+    }
+
+    /** Consecutive rows of the same feature, in their original order. */
+    private static List<List<Item>> featureRuns(List<Item> items) {
+        List<List<Item>> runs = new ArrayList<>();
+        for (Item item : items) {
+            List<Item> last = runs.isEmpty() ? null : runs.get(runs.size() - 1);
+            if (last != null && last.get(0).feature().equals(item.feature())) {
+                last.add(item);
+            } else {
+                runs.add(new ArrayList<>(List.of(item)));
+            }
+        }
+        return runs;
+    }
+
+    /**
+     * Feature runs in original order, except that the next run is the first remaining one starting with the
+     * role the previous run ended with (beginning with {@code startRole}). Runs are never split.
+     */
+    private static List<List<Item>> chainByRole(List<List<Item>> runs, String startRole) {
+        List<List<Item>> remaining = new LinkedList<>(runs);
+        List<List<Item>> ordered = new ArrayList<>();
+        String role = startRole;
+        while (!remaining.isEmpty()) {
+            String current = role;
+            List<Item> next = remaining.stream()
+                    .filter(run -> run.get(0).role().equals(current))
+                    .findFirst()
+                    .orElse(remaining.get(0));
+            remaining.remove(next);
+            ordered.add(next);
+            role = next.get(next.size() - 1).role();
+        }
+        return ordered;
+    }
+
+    /**
+     * Distributes groups over worker lanes longest-processing-time-first: longest chunk onto the lane
+     * with the least expected work. A group longer than a fair share is split so no lane is left idle.
+     * Inside a lane the longest scenarios run first.
+     */
+    private static List<List<Item>> lanes(List<List<Item>> groups, int workers) {
+        double total = groups.stream().flatMap(List::stream).mapToDouble(Item::expectedMs).sum();
+        double share = total / workers;
+
+        List<Chunk> chunks = new ArrayList<>();
+        for (List<Item> group : groups) {
+            List<Item> sorted = new ArrayList<>(group);
+            sorted.sort(Comparator.comparingDouble(Item::expectedMs).reversed());
+            List<Item> current = new ArrayList<>();
+            double currentMs = 0;
+            for (Item item : sorted) {
+                if (!current.isEmpty() && currentMs + item.expectedMs() > share) {
+                    chunks.add(new Chunk(current, currentMs));
+                    current = new ArrayList<>();
+                    currentMs = 0;
+                }
+                current.add(item);
+                currentMs += item.expectedMs();
+            }
+            if (!current.isEmpty()) chunks.add(new Chunk(current, currentMs));
+        }
+        chunks.sort(Comparator.comparingDouble(Chunk::expectedMs).reversed());
+
+        int laneCount = Math.min(workers, chunks.size());
+        List<List<Item>> lanes = new ArrayList<>();
+        double[] load = new double[laneCount];
+        for (int w = 0; w < laneCount; w++) lanes.add(new ArrayList<>());
+        for (Chunk chunk : chunks) {
+            int target = 0;
+            for (int w = 1; w < laneCount; w++) {
+                if (load[w] < load[target]) target = w;
+            }
+            lanes.get(target).addAll(chunk.items());
+            load[target] += chunk.expectedMs();
+        }
+        return lanes;
+    }
+
+    /** Round-robin over lanes; lanes with the most work come first in every round. */
+    private static List<Item> interleave(List<List<Item>> lanes) {
+        List<List<Item>> ordered = new ArrayList<>(lanes);
+        ordered.sort(Comparator.comparingDouble((List<Item> l) -> l.stream().mapToDouble(Item::expectedMs).sum()).reversed());
+        List<Item> out = new ArrayList<>();
+        int longest = ordered.stream().mapToInt(List::size).max().orElse(0);
+        for (int i = 0; i < longest; i++) {
+            for (List<Item> lane : ordered) {
+                if (i < lane.size()) out.add(lane.get(i));
+            }
+        }
+        return out;
+    }
+
+    /** Simulates TestNG dispatch: each row in order goes to the worker that becomes free first. */
+    private static double makespan(List<Item> order, int workers) {
+        PriorityQueue<Double> freeAt = new PriorityQueue<>();
+        for (int w = 0; w < Math.max(1, workers); w++) freeAt.add(0.0);
+        double end = 0;
+        for (Item item : order) {
+            double finish = freeAt.poll() + item.expectedMs();
+            end = Math.max(end, finish);
+            freeAt.add(finish);
+        }
+        return end;
+    }
+
+    /** Role changes when the rows run one after another (sequential run only). */
+    private static int roleChanges(List<Item> order) {
+        int changes = 0;
+        for (int i = 1; i < order.size(); i++) {
+            if (!order.get(i).role().equals(order.get(i - 1).role())) changes++;
+        }
+        return changes;
+    }
+
+    private static void report(List<Item> original, List<Item> scheduled, int workers, boolean roleAffinity) {
+        if (roleAffinity && workers <= 1) {
+            System.out.println("Role-affinity scheduling: " + scheduled.size() + " scenario(s), role changes "
+                    + roleChanges(original) + " -> " + roleChanges(scheduled));
+        }
+        if (workers > 1) {
+            System.out.printf(Locale.ROOT, "Longest-first scheduling: predicted makespan %.1fs (was %.1fs in original order)%s%n",
+                    makespan(scheduled, workers) / 1000, makespan(original, workers) / 1000,
+                    ScenarioDurations.hasHistory() ? "" : ", no duration history yet");
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.qa.runner;
+
+import com.qa.common.BrowserMetrics;
+import com.qa.utils.ConfigManager;
+import com.qa.utils.TrendFit;
+import io.cucumber.testng.CucumberOptions;
+import io.cucumber.testng.FeatureWrapper;
+import io.cucumber.testng.PickleWrapper;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Soak mode (run.mode=soak): repeats the selected scenarios (login -> dashboard -> logout from Login.feature)
+ * in ONE browser for soak.iterations passes or soak.durationMin minutes, whichever ends first.
+ * After every pass the JS heap (post-GC), DOM node count and event listener count are sampled via CDP,
+ * a linear trend is fitted and a steady growth above the configured thresholds is flagged as a likely leak.
+ * A failing scenario does not end its pass: the remaining scenarios still run, the pass is still sampled and
+ * then reported as failed. Samples and per-pass failure counts are written to target/perf/soak-metrics.csv.
+ */
+@CucumberOptions(
+        features = { "src/test/resources/features" },
+        glue = { "com.qa.stepdefinitions", "com.qa.hooks" },
+        plugin = {
+                "pretty",
+                "com.aventstack.extentreports.cucumber.adapter.ExtentCucumberAdapter:",
+                "timeline:test-output-thread-soak/"
+        }
+)
+public class SoakRunner extends TestRunnerBase {
+
+    private static final Properties CONFIG = new ConfigManager().getConfigProps();
+    private static final Path METRICS_FILE = Paths.get("target", "perf", "soak-metrics.csv");
+
+    // Minimum fit quality before a slope counts as steady growth rather than noise
+    private static final double MIN_R_SQUARED = 0.6;
+    private static final int MIN_SAMPLES = 5;
+
+    private final List<PassSample> samples = new ArrayList<>();
+    private Object[][] passScenarios;
+
+    /** The single-pass cucumber test is replaced by soakIteration. */
+    @Override
+    @Test(enabled = false)
+    public void scenario(PickleWrapper pickleWrapper, FeatureWrapper cucumberFeature) {
+        super.scenario(pickleWrapper, cucumberFeature);
+    }
+
+    /** Lazily yields pass numbers until the iteration count or the duration budget is used up. */
+    @DataProvider
+    public Iterator<Object[]> soakIterations() {
+        int iterations = Integer.parseInt(CONFIG.getProperty("soak.iterations", "20").trim());
+        long durationMin = Long.parseLong(CONFIG.getProperty("soak.durationMin", "0").trim());
+        long deadline = durationMin > 0 ? System.currentTimeMillis() + durationMin * 60_000L : Long.MAX_VALUE;
+        System.out.println("Soak mode: up to " + iterations + " pass(es)"
+                + (durationMin > 0 ? " or " + durationMin + " minute(s)" : ""));
+
+        return new Iterator<>() {
+            private int next = 1;
+
+            @Override
+            public boolean hasNext() {
+                return next <= iterations && System.currentTimeMillis() < deadline;
+            }
+
+            @Override
+            public Object[] next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return new Object[]{next++};
+            }
+        };
+    }
+
+    @Test(groups = "cucumber", description = "Soak pass over the selected scenarios", dataProvider = "soakIterations")
+    public void soakIteration(Integer iteration) {
+        if (passScenarios == null) {
+            passScenarios = scenarios();
+        }
+        System.out.println("Soak pass " + iteration + " (" + passScenarios.length + " scenario(s))");
+        List<String> failed = new ArrayList<>();
+        for (Object[] s : passScenarios) {
+            PickleWrapper pickle = (PickleWrapper) s[0];
+            try {
+                super.scenario(pickle, (FeatureWrapper) s[1]);
+            } catch (RuntimeException e) {
+                failed.add(pickle.getPickle().getName());
+                System.err.println("Soak pass " + iteration + ": " + e.getMessage());
+            }
+        }
+
+        BrowserMetrics.Sample sample = BrowserMetrics.sample();
+        if (sample != null) {
+            samples.add(new PassSample(iteration, failed.size(), sample));
+            System.out.printf("Soak pass %d: heap=%.1f KB, nodes=%.0f, listeners=%.0f%n",
+                    iteration, sample.jsHeapUsedBytes() / 1024, sample.nodes(), sample.listeners());
+        }
+        if (!failed.isEmpty()) {
+            throw new AssertionError("Soak pass " + iteration + ": " + failed.size() + " of "
+                    + passScenarios.length + " scenario(s) failed: " + String.join(", ", failed));
+        }
+    }
+
+    @Test(groups = "cucumber", description = "Memory growth trend across soak passes",
+            dependsOnMethods = "soakIteration", alwaysRun = true)
+    public void assessMemoryTrend() {
+        writeSamples();
+        if (samples.size() < MIN_SAMPLES) {
+            System.out.println("Soak trend skipped: only " + samples.size() + " sample(s), need " + MIN_SAMPLES + ".");
+            return;
+        }
+
+        List<String> leaks = new ArrayList<>();
+        checkTrend("JS heap (KB)", s -> s.jsHeapUsedBytes() / 1024,
+                Double.parseDouble(CONFIG.getProperty("soak.heapGrowthKbPerIteration", "256")), leaks);
+        checkTrend("DOM nodes", BrowserMetrics.Sample::nodes,
+                Double.parseDouble(CONFIG.getProperty("soak.nodeGrowthPerIteration", "50")), leaks);
+        checkTrend("Event listeners", BrowserMetrics.Sample::listeners,
+                Double.parseDouble(CONFIG.getProperty("soak.listenerGrowthPerIteration", "10")), leaks);
+
+        if (!leaks.isEmpty() && "true".equalsIgnoreCase(CONFIG.getProperty("soak.failOnLeak", "true"))) {
+            throw new AssertionError("Likely front-end memory leak: " + String.join("; ", leaks));
+        }
+    }
+
+    private void checkTrend(String label, ToDoubleFunction<BrowserMetrics.Sample> metric,
+                            double threshold, List<String> leaks) {
+        List<Double> series = samples.stream().map(p -> metric.applyAsDouble(p.sample())).toList();
+        TrendFit.Result fit = TrendFit.fit(series);
+        boolean leak = fit.slope() > threshold && fit.rSquared() >= MIN_R_SQUARED;
+        String line = String.format("%s: %.1f -> %.1f, slope %.2f/pass (threshold %.2f), R²=%.2f%s",
+                label, series.get(0), series.get(series.size() - 1), fit.slope(), threshold, fit.rSquared(),
+                leak ? "  <-- LIKELY LEAK" : "");
+        System.out.println("Soak trend " + line);
+        if (leak) leaks.add(line);
+    }
+
+    private void writeSamples() {
+        StringBuilder csv = new StringBuilder("pass,failedScenarios,timestampMs,jsHeapUsedBytes,nodes,listeners,documents\n");
+        for (PassSample p : samples) {
+            BrowserMetrics.Sample s = p.sample();
+            csv.append(p.iteration()).append(',').append(p.failedScenarios()).append(',').append(s.timestampMs()).append(',')
+                    .append((long) s.jsHeapUsedBytes()).append(',').append((long) s.nodes()).append(',')
+                    .append((long) s.listeners()).append(',').append((long) s.documents()).append('\n');
+        }
+        try {
+            Files.createDirectories(METRICS_FILE.getParent());
+            Files.writeString(METRICS_FILE, csv);
+            System.out.println("Soak metrics written to: " + METRICS_FILE.toAbsolutePath());
+        } catch (IOException e) {
+            System.err.println("Failed to write soak metrics: " + e.getMessage());
+        }
+    }
+
+    private record PassSample(int iteration, int failedScenarios, BrowserMetrics.Sample sample) {
+    }
+}
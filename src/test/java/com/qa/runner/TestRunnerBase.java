@@ -4,6 +4,7 @@ import com.qa.utils.ConfigManager;
 import com.qa.utils.FeatureTagExtractor;
 import com.qa.utils.RunnerJsonReader;
 import com.qa.utils.TagUtils;
+import com.aventstack.extentreports.service.ExtentService;
 import io.cucumber.testng.FeatureWrapper;
 import io.cucumber.testng.PickleWrapper;
 import io.cucumber.testng.TestNGCucumberRunner;
@@ -17,19 +18,28 @@ import java.io.File;
 import java.lang.reflect.Method;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.function.ToIntFunction;
 import java.util.stream.Collectors;
 
 public class TestRunnerBase {
 
     private static final Properties CONFIG = new ConfigManager().getConfigProps();
-    private static final ThreadLocal<TestNGCucumberRunner> testNGCucumberRunner = new ThreadLocal<>();
+    // Shared by all data-provider worker threads (parallel mode); runScenario is safe to call concurrently
+    private static volatile TestNGCucumberRunner testNGCucumberRunner;
+    private static volatile String defaultLogsDir;
+    // Scenario workers of the current TestNG run; only the smoke pass sets more than one (see MasterRunner)
+    private static volatile int parallelWorkers = 1;
 
     public static TestNGCucumberRunner getRunner() {
-        return testNGCucumberRunner.get();
+        return testNGCucumberRunner;
     }
 
     private static void setRunner(TestNGCucumberRunner runner) {
-        testNGCucumberRunner.set(runner);
+        testNGCucumberRunner = runner;
+    }
+
+    static void setParallelWorkers(int workers) {
+        parallelWorkers = Math.max(1, workers);
     }
 
     @BeforeClass(alwaysRun = true)
@@ -37,6 +47,7 @@ public class TestRunnerBase {
         String logsDir = Paths.get(System.getProperty("user.dir"), "Logs").toString();
         createDirectoryIfNotExists(logsDir);
         ThreadContext.put("ROUTINGKEY", logsDir);
+        defaultLogsDir = logsDir;
         System.out.println("Default log directory for class setup: " + logsDir);
 
         String executionMode = CONFIG.getProperty("execution.mode", "tags").trim();
@@ -124,10 +135,19 @@ public class TestRunnerBase {
         ThreadContext.put("ROUTINGKEY", routingDir);
         System.out.println("Scenario log directory: " + routingDir);
 
+        long startMs = System.currentTimeMillis();
         try {
             getRunner().runScenario(pickleWrapper.getPickle());
         } catch (Throwable e) {
             throw new RuntimeException("Scenario failed: " + pickleWrapper.getPickle().getName(), e);
+        } finally {
+            ScenarioDurations.record(ScenarioDurations.key(pickleWrapper), startMs, System.currentTimeMillis());
+            // Worker threads are reused for other scenarios: route anything logged in between to the default log
+            if (defaultLogsDir != null) {
+                ThreadContext.put("ROUTINGKEY", defaultLogsDir);
+            } else {
+                ThreadContext.remove("ROUTINGKEY");
+            }
         }
     }
 
@@ -140,24 +160,27 @@ public class TestRunnerBase {
         if (executionMode.equalsIgnoreCase("features")) {
             List<String> orderedFeatures = RunnerJsonReader.getFeatureList();
             List<Object[]> filteredScenarios = new ArrayList<>();
+            Map<Object[], Integer> featureIndex = new IdentityHashMap<>();
 
-            for (String featureName : orderedFeatures) {
+            for (int f = 0; f < orderedFeatures.size(); f++) {
+                String featureName = orderedFeatures.get(f);
                 for (Object[] scenario : allScenarios) {
                     PickleWrapper pw = (PickleWrapper) scenario[0];
                     String uri = pw.getPickle().getUri().toString();
                     if (uri.endsWith(featureName)) {
                         filteredScenarios.add(scenario);
+                        featureIndex.put(scenario, f);
                     }
                 }
             }
-            return filteredScenarios.toArray(new Object[0][]);
+            return schedule(filteredScenarios, featureIndex::get);
         }
 
         // ---- ORDER BY TAGS (default execution.mode=tags) ----
         String ordered = System.getProperty("ordered.tags.sequence", "").trim();
         if (ordered.isEmpty()) {
             // No explicit order persisted; return as-is
-            return allScenarios;
+            return schedule(Arrays.asList(allScenarios), row -> 0);
         }
 
         // Example persisted: "@event,@EventApprove"
@@ -180,7 +203,20 @@ public class TestRunnerBase {
             return Integer.compare(ra, rb);
         });
 
-        return list.toArray(new Object[0][]);
+        return schedule(list, row -> scenarioRank((PickleWrapper) row[0], rank));
+    }
+
+    /**
+     * Applies role-affinity (scheduler.roleAffinity=true) and, with parallel workers, longest-first
+     * scheduling inside the given order buckets; otherwise returns the rows unchanged.
+     */
+    private static Object[][] schedule(List<Object[]> rows, ToIntFunction<Object[]> bucket) {
+        boolean roleAffinity = "true".equalsIgnoreCase(CONFIG.getProperty("scheduler.roleAffinity", "false").trim());
+        int workers = parallelWorkers;
+        if (!roleAffinity && workers <= 1) {
+            return rows.toArray(new Object[0][]);
+        }
+        return ScenarioScheduler.schedule(rows, bucket, workers, roleAffinity);
     }
 
     /**
@@ -253,11 +289,28 @@ public class TestRunnerBase {
 
     @AfterClass(alwaysRun = true)
     public void tearDownClass() {
-        if (testNGCucumberRunner.get() != null) {
+        reportMakespan();
+        ScenarioDurations.save();
+        if (testNGCucumberRunner != null) {
             getRunner().finish();
         }
     }
 
+    /** Predicted (from duration history) vs actual makespan, on the console and in the Extent system info. */
+    private static void reportMakespan() {
+        long actual = ScenarioDurations.actualMakespanMs();
+        long predicted = ScenarioScheduler.predictedMakespanMs();
+        if (actual < 0 || predicted < 0) return;
+        String summary = String.format(Locale.ROOT, "predicted %.1fs, actual %.1fs (%s worker(s))",
+                predicted / 1000.0, actual / 1000.0, parallelWorkers);
+        System.out.println("Makespan: " + summary);
+        try {
+            ExtentService.getInstance().setSystemInfo("Makespan", summary);
+        } catch (Exception e) {
+            System.err.println("Could not add makespan to Extent report: " + e.getMessage());
+        }
+    }
+
     public static String[] featuresToRun() {
         String mode = CONFIG.getProperty("execution.mode", "tags").trim();
 
@@ -8,13 +8,19 @@ import org.testng.Assert;
 
 public class LoginTest {
 
-    private static final LoginPage loginPage= new LoginPage();
+    // One page object per step-definition instance, bound to the current thread's browser
+    private final LoginPage loginPage= new LoginPage();
 
     @Given("User is on the login page")
     public void user_is_on_the_login_page(){
         loginPage.navigateToApplication();
     }
 
+    @Given("User is logged in")
+    public void user_is_logged_in(){
+        loginPage.ensureLoggedIn();
+    }
+
     @When("User enter the username")
     public void user_enter_the_username(){
         loginPage.enterUsername();
@@ -0,0 +1,92 @@
+package com.qa.stepdefinitions;
+
+import com.aventstack.extentreports.cucumber.adapter.ExtentCucumberAdapter;
+import com.qa.common.DriverManager;
+import com.qa.common.PageLoadProbe;
+import com.qa.common.PerformanceBudget;
+import com.qa.common.SessionManager;
+import io.cucumber.java.en.Then;
+import org.testng.Assert;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+public class PerformanceBudgetTest {
+
+    private static final double BYTES_PER_MB = 1024.0 * 1024.0;
+
+    @Then("page load time is under {int} ms")
+    public void page_load_time_is_under_ms(int maxMs) {
+        PageLoadProbe.Snapshot s = snapshot();
+        check(s, List.of(line("Page load", s.pageLoadMs(), maxMs, "ms")));
+    }
+
+    @Then("TTFB for the document is under {int} ms")
+    public void ttfb_for_the_document_is_under_ms(int maxMs) {
+        PageLoadProbe.Snapshot s = snapshot();
+        check(s, List.of(line("TTFB", s.ttfbMs(), maxMs, "ms")));
+    }
+
+    @Then("the page transferred less than {int} MB")
+    public void the_page_transferred_less_than_mb(int maxMb) {
+        PageLoadProbe.Snapshot s = snapshot();
+        check(s, List.of(line("Transferred", transferredMb(s), maxMb, "MB")));
+    }
+
+    @Then("the page is within its performance budget")
+    public void the_page_is_within_its_performance_budget() {
+        PerformanceBudget.Budget budget = PerformanceBudget.forRole(SessionManager.getCurrentRole());
+        PageLoadProbe.Snapshot s = snapshot();
+        check(s, List.of(
+                line("Page load", s.pageLoadMs(), budget.pageLoadMs(), "ms"),
+                line("TTFB", s.ttfbMs(), budget.ttfbMs(), "ms"),
+                line("Transferred", transferredMb(s), budget.transferMb(), "MB")));
+    }
+
+    /** Timings of the current document; bytes include everything received since the navigation started. */
+    private PageLoadProbe.Snapshot snapshot() {
+        PageLoadProbe.Snapshot s = PageLoadProbe.capture(DriverManager.getDriver());
+        if (s == null) s = PageLoadProbe.last();
+        Assert.assertNotNull(s, "No navigation timing data available for the current page");
+        return s;
+    }
+
+    private static double transferredMb(PageLoadProbe.Snapshot s) {
+        long bytes = s.transferredBytes() >= 0 ? s.transferredBytes() : s.documentBytes();
+        return bytes / BYTES_PER_MB;
+    }
+
+    /** One budget line; limit 0 means no budget for that metric. */
+    private record Line(String metric, double actual, double limit, String unit) {
+        boolean breached() {
+            return limit > 0 && actual >= limit;
+        }
+    }
+
+    private static Line line(String metric, double actual, double limit, String unit) {
+        return new Line(metric, actual, limit, unit);
+    }
+
+    private void check(PageLoadProbe.Snapshot s, List<Line> lines) {
+        StringBuilder html = new StringBuilder("<b>Performance budget</b> ").append(s.url())
+                .append("<table><tr><th>Metric</th><th>Actual</th><th>Budget</th><th>Result</th></tr>");
+        List<String> failures = new ArrayList<>();
+        for (Line line : lines) {
+            String actual = format(line.actual(), line.unit());
+            String limit = line.limit() > 0 ? format(line.limit(), line.unit()) : "-";
+            String result = line.breached() ? "<span style='color:red'>BREACH</span>" : "OK";
+            html.append("<tr><td>").append(line.metric()).append("</td><td>").append(actual)
+                    .append("</td><td>").append(limit).append("</td><td>").append(result).append("</td></tr>");
+            if (line.breached()) failures.add(line.metric() + " " + actual + " (budget " + limit + ")");
+        }
+        ExtentCucumberAdapter.addTestStepLog(html.append("</table>").toString());
+        Assert.assertTrue(failures.isEmpty(), "Performance budget exceeded on " + s.url() + ": " + String.join(", ", failures));
+    }
+
+    private static String format(double value, String unit) {
+        return "MB".equals(unit)
+                ? String.format(Locale.ROOT, "%.2f MB", value)
+                : String.format(Locale.ROOT, "%.0f ms", value);
+    }
+}
@@ -0,0 +1,70 @@
+package com.qa.utils;
+
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * RFC 6238 appendix B test vectors for {@link TotpGenerator#generate} (8 digits, 30 s period).
+ * Not part of testng.xml (the smoke suite); run with: mvn test -Dtest=TotpGeneratorTest
+ */
+public class TotpGeneratorTest {
+
+    private static final byte[] SEED_SHA1 = "12345678901234567890".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] SEED_SHA256 = "12345678901234567890123456789012".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] SEED_SHA512 =
+            "1234567890123456789012345678901234567890123456789012345678901234".getBytes(StandardCharsets.US_ASCII);
+
+    @DataProvider
+    public Object[][] rfc6238Vectors() {
+        return new Object[][]{
+                {59L, "HmacSHA1", SEED_SHA1, "94287082"},
+                {59L, "HmacSHA256", SEED_SHA256, "46119246"},
+                {59L, "HmacSHA512", SEED_SHA512, "90693936"},
+                {1111111109L, "HmacSHA1", SEED_SHA1, "07081804"},
+                {1111111109L, "HmacSHA256", SEED_SHA256, "68084774"},
+                {1111111109L, "HmacSHA512", SEED_SHA512, "25091201"},
+                {1111111111L, "HmacSHA1", SEED_SHA1, "14050471"},
+                {1111111111L, "HmacSHA256", SEED_SHA256, "67062674"},
+                {1111111111L, "HmacSHA512", SEED_SHA512, "99943326"},
+                {1234567890L, "HmacSHA1", SEED_SHA1, "89005924"},
+                {1234567890L, "HmacSHA256", SEED_SHA256, "91819424"},
+                {1234567890L, "HmacSHA512", SEED_SHA512, "93441116"},
+                {2000000000L, "HmacSHA1", SEED_SHA1, "69279037"},
+                {2000000000L, "HmacSHA256", SEED_SHA256, "90698825"},
+                {2000000000L, "HmacSHA512", SEED_SHA512, "38618901"},
+                {20000000000L, "HmacSHA1", SEED_SHA1, "65353130"},
+                {20000000000L, "HmacSHA256", SEED_SHA256, "77737706"},
+                {20000000000L, "HmacSHA512", SEED_SHA512, "47863826"},
+        };
+    }
+
+    @Test(dataProvider = "rfc6238Vectors")
+    public void matchesRfc6238(long unixSeconds, String algorithm, byte[] seed, String expected) {
+        Assert.assertEquals(TotpGenerator.generate(seed, unixSeconds / 30, 8, algorithm), expected);
+    }
+
+    @Test
+    public void sixDigitsAreTheLowOrderDigits() {
+        Assert.assertEquals(TotpGenerator.generate(SEED_SHA1, 59L / 30, 6, "HmacSHA1"), "287082");
+    }
+
+    @Test
+    public void base32SeedDecodesToTheSameCode() {
+        // "12345678901234567890" in Base32, as an authenticator app shows it
+        byte[] seed = CryptoUtils.base32Decode("GEZDGNBVGY3TQOJQGEZDGNBVGY3TQOJQ");
+        Assert.assertEquals(TotpGenerator.generate(seed, 59L / 30, 8, "HmacSHA1"), "94287082");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void rejectsMoreThanEightDigits() {
+        TotpGenerator.generate(SEED_SHA1, 1, 9, "HmacSHA1");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void rejectsFewerThanSixDigits() {
+        TotpGenerator.generate(SEED_SHA1, 1, 5, "HmacSHA1");
+    }
+}
@@ -1,18 +1,31 @@
 @test
 Feature: Verify if the application is accessible
 
+  @freshLogin
   Scenario: Verify if admin is able to access the application
     Given User is on the login page
+    And the page is within its performance budget
     When User enter the username
     And Enter the password
     Then Click on login button
     Then Verify if dashboard is visible
     Then Clicked on logout button
 
+  @freshLogin
   Scenario: Verify if trainer is able to access the application
     Given User is on the login page
+    And the page is within its performance budget
     When User enter the username
     And Enter the password
     Then Click on login button
     Then Verify if dashboard is visible
-    Then Clicked on logout button
\ No newline at end of file
+    Then Clicked on logout button
+
+  Scenario: Verify if admin reaches the dashboard with a reused session
+    Given User is logged in
+    Then Verify if dashboard is visible
+
+  @tokenLogin
+  Scenario: Verify if trainer reaches the dashboard after a token login
+    Given User is logged in
+    Then Verify if dashboard is visible